@@ -0,0 +1,120 @@
+package com.cartflow.benchmark;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 基准结果回归检查
+ * 把本次JMH结果（JSON）与保存的基线逐项对比：吞吐量模式分数越高越好，耗时模式（单位为 xx/op）越低越好，
+ * 任一项比基线差出阈值以上即判为回归并让构建失败。基线不存在时只提示如何保存基线。
+ *
+ * 参数: 本次结果文件 基线文件 阈值（如 0.10）
+ */
+public class BaselineCheck {
+
+    private static final String PACKAGE_PREFIX = BaselineCheck.class.getPackage().getName() + ".";
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            throw new IllegalArgumentException("Usage: BaselineCheck <result.json> <baseline.json> <threshold>");
+        }
+        Path resultFile = Paths.get(args[0]);
+        Path baselineFile = Paths.get(args[1]);
+        double threshold = Double.parseDouble(args[2]);
+
+        if (!Files.exists(resultFile)) {
+            System.out.println("No benchmark result at " + resultFile + ", skipping baseline check");
+            return;
+        }
+        if (!Files.exists(baselineFile)) {
+            System.out.println("No baseline at " + baselineFile + "; copy " + resultFile + " there to store one");
+            return;
+        }
+
+        Map<String, Score> results = read(resultFile);
+        Map<String, Score> baseline = read(baselineFile);
+
+        int regressions = 0;
+        System.out.println(String.format("%-70s %14s %14s %9s", "Benchmark", "Baseline", "Current", "Change"));
+        for (Map.Entry<String, Score> entry : results.entrySet()) {
+            Score current = entry.getValue();
+            Score previous = baseline.get(entry.getKey());
+            if (previous == null || !previous.unit.equals(current.unit)) {
+                System.out.println(String.format("%-70s %14s %14.3f %9s", entry.getKey(), "-", current.value, "new"));
+                continue;
+            }
+
+            // 正数表示变好
+            double change = (current.value - previous.value) / previous.value;
+            if (current.lowerIsBetter()) {
+                change = -change;
+            }
+            boolean regressed = change < -threshold;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.println(String.format("%-70s %14.3f %14.3f %+8.1f%%%s", entry.getKey(),
+                    previous.value, current.value, change * 100, regressed ? "  REGRESSION" : ""));
+        }
+
+        if (regressions > 0) {
+            throw new IllegalStateException(regressions + " benchmark(s) regressed more than "
+                    + Math.round(threshold * 100) + "% against " + baselineFile);
+        }
+    }
+
+    /**
+     * 读取JMH的JSON结果，键为 基准方法名 + 参数 + 线程数
+     */
+    private static Map<String, Score> read(Path file) throws IOException {
+        Map<String, Score> scores = new LinkedHashMap<>();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            JsonArray runs = JsonParser.parseReader(reader).getAsJsonArray();
+            for (JsonElement element : runs) {
+                JsonObject run = element.getAsJsonObject();
+
+                String benchmark = run.get("benchmark").getAsString();
+                StringBuilder key = new StringBuilder(benchmark.replace(PACKAGE_PREFIX, ""));
+                if (run.has("params")) {
+                    Map<String, String> params = new TreeMap<>();
+                    for (Map.Entry<String, JsonElement> param : run.getAsJsonObject("params").entrySet()) {
+                        params.put(param.getKey(), param.getValue().getAsString());
+                    }
+                    key.append(params);
+                }
+                key.append(" threads=").append(run.get("threads").getAsInt());
+
+                JsonObject metric = run.getAsJsonObject("primaryMetric");
+                scores.put(key.toString(), new Score(metric.get("score").getAsDouble(),
+                        metric.get("scoreUnit").getAsString()));
+            }
+        }
+        return scores;
+    }
+
+    private static class Score {
+        private final double value;
+        private final String unit;
+
+        Score(double value, String unit) {
+            this.value = value;
+            this.unit = unit;
+        }
+
+        boolean lowerIsBetter() {
+            return unit.endsWith("/op");
+        }
+    }
+}
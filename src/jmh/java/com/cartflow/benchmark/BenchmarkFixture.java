@@ -0,0 +1,201 @@
+package com.cartflow.benchmark;
+
+import com.cartflow.CartFlowApplication;
+import com.cartflow.auth.PasswordHasher;
+import com.cartflow.model.CartItem;
+import com.cartflow.model.Order;
+import com.cartflow.model.Product;
+import com.cartflow.model.User;
+import com.cartflow.storage.SnapshotFile;
+import com.google.gson.Gson;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * 基准测试数据
+ * 按指定规模生成商品、用户和订单快照文件，再以非Web方式启动应用上下文，
+ * 各管理类走正常的加载和建索引流程。数据目录（cartflow.data.dir）相对于工作目录，
+ * benchmark profile 把工作目录设为 target/jmh-work。
+ */
+final class BenchmarkFixture {
+
+    static final Path DATA_DIR = Paths.get("data");
+
+    static final String PASSWORD = "password";
+    /** 与 cartflow.password.iterations 的默认值一致，登录时不会触发重新哈希 */
+    static final int PASSWORD_ITERATIONS = 310000;
+    static final int CATEGORY_COUNT = 20;
+    static final String[] KEYWORDS = {
+            "phone", "laptop", "camera", "watch", "speaker", "keyboard", "monitor", "tablet",
+            "headphone", "charger", "router", "printer", "mouse", "drone", "console", "projector"
+    };
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter ORDER_ID_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+    private static final LocalDateTime HISTORY_START = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final int STOCK = 1_000_000_000;
+    private static final long SEED = 42;
+
+    private final Gson gson = new Gson();
+    private final Random random = new Random(SEED);
+
+    private int products = 1000;
+    private int users = 1000;
+    private int orders;
+    private String durability = "journal";
+    private String engine = "json";
+    private String snapshotFormat = "json";
+
+    BenchmarkFixture products(int count) {
+        this.products = count;
+        return this;
+    }
+
+    BenchmarkFixture users(int count) {
+        this.users = count;
+        return this;
+    }
+
+    BenchmarkFixture orders(int count) {
+        this.orders = count;
+        return this;
+    }
+
+    BenchmarkFixture durability(String durability) {
+        this.durability = durability;
+        return this;
+    }
+
+    BenchmarkFixture engine(String engine) {
+        this.engine = engine;
+        return this;
+    }
+
+    BenchmarkFixture snapshotFormat(String snapshotFormat) {
+        this.snapshotFormat = snapshotFormat;
+        return this;
+    }
+
+    /**
+     * 清空数据目录、写入生成的数据并启动应用上下文
+     */
+    ConfigurableApplicationContext start() throws IOException {
+        prepare();
+        return boot();
+    }
+
+    /**
+     * 清空数据目录并写入生成的数据（JSON快照）
+     */
+    void prepare() throws IOException {
+        resetDataDirectory();
+        write("products.json", Product.class, generateProducts());
+        write("users.json", User.class, generateUsers());
+        write("orders.json", Order.class, generateOrders());
+    }
+
+    /**
+     * 以现有数据启动应用上下文
+     */
+    ConfigurableApplicationContext boot() {
+        return new SpringApplicationBuilder(CartFlowApplication.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .run("--cartflow.data.dir=" + DATA_DIR.toAbsolutePath(),
+                        "--cartflow.data.engine=" + engine,
+                        "--cartflow.data.snapshot-format=" + snapshotFormat,
+                        "--cartflow.data.durability=" + durability,
+                        "--cartflow.password.iterations=" + PASSWORD_ITERATIONS,
+                        "--logging.level.root=WARN",
+                        "--logging.level.com.cartflow=WARN",
+                        "--spring.devtools.restart.enabled=false");
+    }
+
+    static String username(int userId) {
+        return "user" + userId;
+    }
+
+    static String keyword(int index) {
+        return KEYWORDS[index % KEYWORDS.length];
+    }
+
+    private List<Product> generateProducts() {
+        List<Product> list = new ArrayList<>(products);
+        for (int id = 1; id <= products; id++) {
+            String word = keyword(id);
+            list.add(new Product(id, "Product " + id + " " + word, 10 + random.nextInt(5000), STOCK,
+                    "category-" + (id % CATEGORY_COUNT),
+                    "Benchmark " + word + " number " + id, "", "active"));
+        }
+        return list;
+    }
+
+    private List<User> generateUsers() {
+        String password = PasswordHasher.pbkdf2(PASSWORD, PASSWORD_ITERATIONS);
+        String registerTime = HISTORY_START.format(TIME_FORMAT);
+        List<User> list = new ArrayList<>(users);
+        for (int id = 1; id <= users; id++) {
+            list.add(new User(id, username(id), password, username(id) + "@example.com", "user", registerTime));
+        }
+        return list;
+    }
+
+    /**
+     * 订单按时间递增分布在两年内，用户和商品随机，状态大致为 7:2:1 的待发货/已完成/已取消
+     */
+    private List<Order> generateOrders() {
+        List<Order> list = new ArrayList<>(orders);
+        long spanSeconds = 2L * 365 * 24 * 3600;
+        for (int i = 0; i < orders; i++) {
+            LocalDateTime time = HISTORY_START.plusSeconds(spanSeconds * i / Math.max(orders, 1));
+            String orderId = time.format(ORDER_ID_FORMAT) + String.format("%09d", i);
+
+            List<CartItem> items = new ArrayList<>();
+            double total = 0;
+            int lines = 1 + random.nextInt(3);
+            for (int j = 0; j < lines; j++) {
+                int productId = 1 + random.nextInt(products);
+                int quantity = 1 + random.nextInt(3);
+                double price = 10 + random.nextInt(5000);
+                items.add(new CartItem(productId, "Product " + productId, price, quantity));
+                total += price * quantity;
+            }
+
+            int roll = random.nextInt(10);
+            String status = roll < 7 ? "pending" : roll < 9 ? "completed" : "cancelled";
+            list.add(new Order(orderId, 1 + random.nextInt(users), items, total, "Benchmark Road " + i,
+                    status, time.format(TIME_FORMAT)));
+        }
+        return list;
+    }
+
+    private <T> void write(String filename, Class<T> type, List<T> items) throws IOException {
+        new SnapshotFile<>(DATA_DIR.resolve(filename).toString(), type, gson).write(items, false);
+    }
+
+    private static void resetDataDirectory() throws IOException {
+        if (Files.exists(DATA_DIR)) {
+            try (Stream<Path> paths = Files.walk(DATA_DIR)) {
+                for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.delete(path);
+                }
+            }
+        }
+        Files.createDirectories(DATA_DIR);
+    }
+}
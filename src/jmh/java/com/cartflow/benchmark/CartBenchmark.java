@@ -0,0 +1,62 @@
+package com.cartflow.benchmark;
+
+import com.cartflow.manager.CartManager;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 加入购物车（含商品检查、库存检查和持久化）
+ * 随机用户随机商品；每个用户只在固定的20个商品里挑，购物车大小与真实场景相近
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CartBenchmark {
+
+    private static final int PRODUCTS = 10000;
+    private static final int CART_SIZE = 20;
+
+    @Param({"1000", "100000", "1000000"})
+    public int users;
+
+    @Param({"journal"})
+    public String durability;
+
+    private ConfigurableApplicationContext context;
+    private CartManager cartManager;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = new BenchmarkFixture().products(PRODUCTS).users(users).durability(durability).start();
+        cartManager = context.getBean(CartManager.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public boolean addToCart() {
+        return addRandomItem();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean addToCartContended() {
+        return addRandomItem();
+    }
+
+    private boolean addRandomItem() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int userId = 1 + random.nextInt(users);
+        int productId = 1 + (userId * CART_SIZE + random.nextInt(CART_SIZE)) % PRODUCTS;
+        return cartManager.addToCart(userId, productId, 1);
+    }
+}
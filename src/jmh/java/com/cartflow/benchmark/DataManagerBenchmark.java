@@ -0,0 +1,68 @@
+package com.cartflow.benchmark;
+
+import com.cartflow.manager.DataManager;
+import com.cartflow.model.Product;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 整个商品数据的写出和加载（另有4个线程同时写出的场景），以及单个商品变更的写入，
+ * 对比 json 和 mvstore 两种存储引擎
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DataManagerBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int products;
+
+    @Param({"json", "mvstore"})
+    public String engine;
+
+    private ConfigurableApplicationContext context;
+    private DataManager dataManager;
+    private List<Product> catalog;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchmarkFixture fixture = new BenchmarkFixture().products(products).engine(engine).durability("sync");
+        context = fixture.start();
+        dataManager = context.getBean(DataManager.class);
+        catalog = dataManager.loadProducts();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void saveProducts() {
+        dataManager.saveProducts(catalog);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void saveProductsContended() {
+        dataManager.saveProducts(catalog);
+    }
+
+    @Benchmark
+    public void saveProduct() {
+        Product product = catalog.get(ThreadLocalRandom.current().nextInt(catalog.size()));
+        dataManager.saveProduct(product);
+    }
+
+    @Benchmark
+    public List<Product> loadProducts() {
+        return dataManager.loadProducts();
+    }
+}
@@ -0,0 +1,102 @@
+package com.cartflow.benchmark;
+
+import com.cartflow.manager.OrderManager;
+import com.cartflow.model.CartItem;
+import com.cartflow.model.CursorPage;
+import com.cartflow.model.Order;
+import com.cartflow.model.ShoppingCart;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 下单、用户订单分页查询和订单统计
+ * 用户数取订单数的1/10（至少1000），并发场景另有读写混合组：2个线程下单、6个线程查订单
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderBenchmark {
+
+    private static final int PRODUCTS = 10000;
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"1000", "100000", "1000000"})
+    public int orders;
+
+    @Param({"journal"})
+    public String durability;
+
+    private ConfigurableApplicationContext context;
+    private OrderManager orderManager;
+    private int users;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        users = Math.max(1000, orders / 10);
+        context = new BenchmarkFixture().products(PRODUCTS).users(users).orders(orders)
+                .durability(durability).start();
+        orderManager = context.getBean(OrderManager.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String createOrder() {
+        return createRandomOrder();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String createOrderContended() {
+        return createRandomOrder();
+    }
+
+    @Benchmark
+    public CursorPage<Order> getUserOrders() {
+        return orderManager.getUserOrders(randomUserId(), null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public OrderManager.OrderStatistics getStatistics() {
+        return orderManager.getStatistics();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(2)
+    public String mixedCreateOrder() {
+        return createRandomOrder();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(6)
+    public CursorPage<Order> mixedGetUserOrders() {
+        return orderManager.getUserOrders(randomUserId(), null, PAGE_SIZE);
+    }
+
+    private String createRandomOrder() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int userId = randomUserId();
+        ShoppingCart cart = new ShoppingCart(userId);
+        int lines = 1 + random.nextInt(3);
+        for (int i = 0; i < lines; i++) {
+            int productId = 1 + random.nextInt(PRODUCTS);
+            cart.addItem(new CartItem(productId, "Product " + productId, 10 + random.nextInt(5000), 1));
+        }
+        return orderManager.createOrder(userId, cart, "Benchmark Road");
+    }
+
+    private int randomUserId() {
+        return 1 + ThreadLocalRandom.current().nextInt(users);
+    }
+}
@@ -0,0 +1,90 @@
+package com.cartflow.benchmark;
+
+import com.cartflow.manager.ProductManager;
+import com.cartflow.model.PageResult;
+import com.cartflow.model.Product;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 商品查询：按ID取商品、关键字搜索、库存检查，单线程和8线程并发各一组
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int products;
+
+    private ConfigurableApplicationContext context;
+    private ProductManager productManager;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = new BenchmarkFixture().products(products).start();
+        productManager = context.getBean(ProductManager.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Product getProductById() {
+        return productManager.getProductById(randomProductId());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Product getProductByIdContended() {
+        return productManager.getProductById(randomProductId());
+    }
+
+    /**
+     * 常见关键字，命中约 1/16 的商品，取第一页
+     */
+    @Benchmark
+    public PageResult<Product> searchCommonKeyword() {
+        int index = ThreadLocalRandom.current().nextInt(BenchmarkFixture.KEYWORDS.length);
+        return productManager.searchProducts(BenchmarkFixture.keyword(index), 1, 20);
+    }
+
+    /**
+     * 关键字加商品编号，只命中少量商品
+     */
+    @Benchmark
+    public PageResult<Product> searchSelectiveKeyword() {
+        int id = randomProductId();
+        return productManager.searchProducts(BenchmarkFixture.keyword(id) + " " + id, 1, 20);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public PageResult<Product> searchContended() {
+        int index = ThreadLocalRandom.current().nextInt(BenchmarkFixture.KEYWORDS.length);
+        return productManager.searchProducts(BenchmarkFixture.keyword(index), 1, 20);
+    }
+
+    @Benchmark
+    public boolean checkStock() {
+        return productManager.checkStock(randomProductId(), 1);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean checkStockContended() {
+        return productManager.checkStock(randomProductId(), 1);
+    }
+
+    private int randomProductId() {
+        return 1 + ThreadLocalRandom.current().nextInt(products);
+    }
+}
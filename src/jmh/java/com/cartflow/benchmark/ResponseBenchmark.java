@@ -0,0 +1,69 @@
+package com.cartflow.benchmark;
+
+import com.cartflow.controller.JsonResponseWriter;
+import com.cartflow.manager.ProductManager;
+import com.cartflow.model.ApiResponse;
+import com.cartflow.model.Product;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 商品列表响应的序列化：Map + ObjectMapper 与 JsonResponseWriter 对比
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseBenchmark {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** 列表中的商品数 */
+    @Param({"20", "1000"})
+    public int listSize;
+
+    private ConfigurableApplicationContext context;
+    private ObjectMapper objectMapper;
+    private JsonResponseWriter responseWriter;
+    private List<Product> products;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = new BenchmarkFixture().products(listSize).start();
+        objectMapper = context.getBean(ObjectMapper.class);
+        responseWriter = context.getBean(JsonResponseWriter.class);
+        products = context.getBean(ProductManager.class).getActiveProducts();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int objectMapperMap() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(BUFFER_SIZE);
+        Map<String, Object> body = new HashMap<>();
+        body.put("success", true);
+        body.put("data", products);
+        objectMapper.writeValue(out, body);
+        return out.size();
+    }
+
+    @Benchmark
+    public int responseWriter() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(BUFFER_SIZE);
+        responseWriter.writeProducts(out, ApiResponse.ok(products));
+        return out.size();
+    }
+}
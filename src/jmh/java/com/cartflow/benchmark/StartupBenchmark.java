@@ -0,0 +1,54 @@
+package com.cartflow.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 冷启动：启动应用上下文并由各管理类加载全部商品、用户和订单，对比JSON和二进制快照格式
+ * 准备阶段先启动一次，让数据转换成待测格式，并把日志合并进快照
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StartupBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int products;
+
+    @Param({"json", "binary"})
+    public String snapshotFormat;
+
+    private BenchmarkFixture fixture;
+    private ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        fixture = new BenchmarkFixture()
+                .products(products)
+                .users(Math.max(1000, products / 10))
+                .orders(products)
+                .snapshotFormat(snapshotFormat)
+                .durability("sync");
+        fixture.prepare();
+        fixture.boot().close();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        if (context != null) {
+            context.close();
+            context = null;
+        }
+    }
+
+    @Benchmark
+    public ConfigurableApplicationContext startup() {
+        context = fixture.boot();
+        return context;
+    }
+}
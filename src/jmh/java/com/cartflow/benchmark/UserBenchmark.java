@@ -0,0 +1,55 @@
+package com.cartflow.benchmark;
+
+import com.cartflow.manager.UserManager;
+import com.cartflow.model.User;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用户登录（用户名查找加 PBKDF2 密码校验），单线程和8线程并发
+ * 校验在密码哈希线程池中执行，吞吐量受 cartflow.password.threads 限制
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int users;
+
+    private ConfigurableApplicationContext context;
+    private UserManager userManager;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = new BenchmarkFixture().users(users).start();
+        userManager = context.getBean(UserManager.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public User login() {
+        return randomLogin();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public User loginContended() {
+        return randomLogin();
+    }
+
+    private User randomLogin() {
+        int userId = 1 + ThreadLocalRandom.current().nextInt(users);
+        return userManager.login(BenchmarkFixture.username(userId), BenchmarkFixture.PASSWORD).join();
+    }
+}
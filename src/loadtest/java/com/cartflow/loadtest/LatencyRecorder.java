@@ -0,0 +1,94 @@
+package com.cartflow.loadtest;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单个接口的延迟记录
+ * 保存每个请求的耗时（微秒），结束时排序求分位数；另外计数HTTP错误和业务失败（success=false）
+ */
+class LatencyRecorder {
+
+    private final String endpoint;
+
+    private long[] samples = new long[1024];
+    private int count;
+
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    LatencyRecorder(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    String getEndpoint() {
+        return endpoint;
+    }
+
+    synchronized void record(long micros) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = micros;
+    }
+
+    /**
+     * 请求失败：连接异常或非2xx状态码
+     */
+    void error() {
+        errors.incrementAndGet();
+    }
+
+    /**
+     * 请求成功但业务返回 success=false（如库存不足）
+     */
+    void rejected() {
+        rejected.incrementAndGet();
+    }
+
+    long errors() {
+        return errors.get();
+    }
+
+    synchronized int count() {
+        return count;
+    }
+
+    synchronized Summary summarize() {
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        return new Summary(endpoint, count, errors.get(), rejected.get(),
+                percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 0.999),
+                sorted.length == 0 ? 0 : sorted[sorted.length - 1]);
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    static class Summary {
+        final String endpoint;
+        final int requests;
+        final long errors;
+        final long rejected;
+        final long p50;
+        final long p99;
+        final long p999;
+        final long max;
+
+        Summary(String endpoint, int requests, long errors, long rejected, long p50, long p99, long p999, long max) {
+            this.endpoint = endpoint;
+            this.requests = requests;
+            this.errors = errors;
+            this.rejected = rejected;
+            this.p50 = p50;
+            this.p99 = p99;
+            this.p999 = p999;
+            this.max = max;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.cartflow.loadtest;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 端到端压测
+ * 对运行中的应用模拟并发用户的购物流程（见 {@link VirtualUser}），
+ * 按报告周期输出吞吐量、错误数和数据文件大小，结束时按接口输出请求数、吞吐量和 p50/p99/p999 延迟。
+ *
+ * 用法: mvn -Ploadtest test-compile exec:java -Dloadtest.args="--users 50 --duration 120 --data-dir src/main/resources/data"
+ */
+public class LoadTest {
+
+    private static final String[] DATA_FILES = {"products.json", "users.json", "carts.json", "orders.json"};
+    private static final String JOURNAL_SUFFIX = ".log";
+
+    public static void main(String[] args) throws InterruptedException {
+        LoadTestConfig config = LoadTestConfig.parse(args);
+        System.out.println("Load test: " + config);
+
+        Map<String, LatencyRecorder> recorders = new LinkedHashMap<>();
+        for (String endpoint : VirtualUser.endpoints()) {
+            recorders.put(endpoint, new LatencyRecorder(endpoint));
+        }
+
+        long startNanos = System.nanoTime();
+        long deadline = startNanos + TimeUnit.SECONDS.toNanos(config.durationSeconds);
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+        ExecutorService users = Executors.newFixedThreadPool(config.users);
+
+        // 虚拟用户在爬坡时间内均匀启动
+        long rampStepMs = config.users > 1 ? TimeUnit.SECONDS.toMillis(config.rampUpSeconds) / config.users : 0;
+        for (int i = 0; i < config.users; i++) {
+            VirtualUser user = new VirtualUser(config, recorders, "lt_" + runId + "_" + i, deadline);
+            scheduler.schedule(() -> users.execute(user), rampStepMs * i, TimeUnit.MILLISECONDS);
+        }
+
+        IntervalReporter reporter = new IntervalReporter(config, recorders, startNanos);
+        scheduler.scheduleAtFixedRate(reporter, config.reportIntervalSeconds, config.reportIntervalSeconds,
+                TimeUnit.SECONDS);
+
+        Thread.sleep(TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+        users.shutdown();
+        if (!users.awaitTermination(60, TimeUnit.SECONDS)) {
+            users.shutdownNow();
+        }
+        scheduler.shutdownNow();
+
+        double elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+        printSummary(recorders, elapsedSeconds);
+    }
+
+    private static void printSummary(Map<String, LatencyRecorder> recorders, double elapsedSeconds) {
+        System.out.println();
+        System.out.println(String.format("%-26s %9s %7s %9s %10s %10s %10s %10s %10s",
+                "Endpoint", "Requests", "Errors", "Rejected", "Req/s", "p50(ms)", "p99(ms)", "p999(ms)", "max(ms)"));
+
+        long totalRequests = 0;
+        long totalErrors = 0;
+        for (LatencyRecorder recorder : recorders.values()) {
+            LatencyRecorder.Summary s = recorder.summarize();
+            totalRequests += s.requests;
+            totalErrors += s.errors;
+            System.out.println(String.format("%-26s %9d %7d %9d %10.1f %10.2f %10.2f %10.2f %10.2f",
+                    s.endpoint, s.requests, s.errors, s.rejected, s.requests / elapsedSeconds,
+                    s.p50 / 1000.0, s.p99 / 1000.0, s.p999 / 1000.0, s.max / 1000.0));
+        }
+        System.out.println(String.format("%-26s %9d %7d %9s %10.1f", "Total", totalRequests, totalErrors, "",
+                totalRequests / elapsedSeconds));
+    }
+
+    /**
+     * 周期报告：本周期吞吐量、累计错误数和数据文件（快照+日志）大小，用于观察数据增长时吞吐量的变化
+     */
+    private static class IntervalReporter implements Runnable {
+        private final LoadTestConfig config;
+        private final Map<String, LatencyRecorder> recorders;
+        private final long startNanos;
+        private long lastCount;
+        private long lastNanos;
+
+        IntervalReporter(LoadTestConfig config, Map<String, LatencyRecorder> recorders, long startNanos) {
+            this.config = config;
+            this.recorders = recorders;
+            this.startNanos = startNanos;
+            this.lastNanos = startNanos;
+        }
+
+        @Override
+        public void run() {
+            long now = System.nanoTime();
+            long count = 0;
+            long errors = 0;
+            for (LatencyRecorder recorder : recorders.values()) {
+                count += recorder.count();
+                errors += recorder.errors();
+            }
+
+            double intervalSeconds = (now - lastNanos) / 1e9;
+            StringBuilder line = new StringBuilder(String.format("[%5.0fs] %8.1f req/s, %d errors",
+                    (now - startNanos) / 1e9, (count - lastCount) / intervalSeconds, errors));
+            if (config.dataDir != null) {
+                line.append(", data files: ").append(dataFileSizes(config.dataDir));
+            }
+            System.out.println(line);
+
+            lastCount = count;
+            lastNanos = now;
+        }
+
+        private static String dataFileSizes(String dataDir) {
+            List<String> sizes = new ArrayList<>();
+            for (String name : DATA_FILES) {
+                long bytes = new File(dataDir, name).length() + new File(dataDir, name + JOURNAL_SUFFIX).length();
+                sizes.add(name + "=" + (bytes / 1024) + "KB");
+            }
+            return String.join(" ", sizes);
+        }
+    }
+}
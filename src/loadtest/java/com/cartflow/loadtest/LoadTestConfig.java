@@ -0,0 +1,76 @@
+package com.cartflow.loadtest;
+
+/**
+ * 压测参数，命令行形式为 --name value
+ */
+class LoadTestConfig {
+
+    String baseUrl = "http://localhost:8080";
+    int users = 20;
+    int durationSeconds = 60;
+    int rampUpSeconds = 10;
+    int thinkMinMs = 100;
+    int thinkMaxMs = 500;
+    /** 每完成多少轮浏览加购下一单 */
+    int ordersEvery = 3;
+    int reportIntervalSeconds = 10;
+    /** 被测应用的数据目录，指定后每个报告周期输出数据文件大小 */
+    String dataDir;
+
+    static LoadTestConfig parse(String[] args) {
+        LoadTestConfig config = new LoadTestConfig();
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + args[i]);
+            }
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--base-url":
+                    config.baseUrl = value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+                    break;
+                case "--users":
+                    config.users = Integer.parseInt(value);
+                    break;
+                case "--duration":
+                    config.durationSeconds = Integer.parseInt(value);
+                    break;
+                case "--ramp-up":
+                    config.rampUpSeconds = Integer.parseInt(value);
+                    break;
+                case "--think-min":
+                    config.thinkMinMs = Integer.parseInt(value);
+                    break;
+                case "--think-max":
+                    config.thinkMaxMs = Integer.parseInt(value);
+                    break;
+                case "--orders-every":
+                    config.ordersEvery = Integer.parseInt(value);
+                    break;
+                case "--report-interval":
+                    config.reportIntervalSeconds = Integer.parseInt(value);
+                    break;
+                case "--data-dir":
+                    config.dataDir = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        if (config.users < 1 || config.durationSeconds < 1 || config.ordersEvery < 1
+                || config.reportIntervalSeconds < 1 || config.thinkMinMs < 0 || config.thinkMaxMs < config.thinkMinMs) {
+            throw new IllegalArgumentException("Invalid load test options");
+        }
+        return config;
+    }
+
+    @Override
+    public String toString() {
+        return "baseUrl=" + baseUrl +
+                ", users=" + users +
+                ", duration=" + durationSeconds + "s" +
+                ", rampUp=" + rampUpSeconds + "s" +
+                ", think=" + thinkMinMs + "-" + thinkMaxMs + "ms" +
+                ", ordersEvery=" + ordersEvery;
+    }
+}
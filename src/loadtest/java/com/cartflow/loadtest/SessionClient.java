@@ -0,0 +1,123 @@
+package com.cartflow.loadtest;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 单个虚拟用户的HTTP客户端
+ * 自己保存服务端下发的Cookie（会话），每次请求带回；每个请求的耗时记入对应接口的记录器
+ */
+class SessionClient {
+
+    private static final Gson GSON = new Gson();
+    private static final int TIMEOUT_MS = 30000;
+
+    private final String baseUrl;
+    private final Map<String, String> cookies = new LinkedHashMap<>();
+
+    SessionClient(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    /**
+     * 发送请求并返回响应JSON；连接失败或非2xx时返回null，业务失败（success=false）另行计数
+     */
+    JsonObject call(LatencyRecorder recorder, String method, String path, Object body) {
+        long start = System.nanoTime();
+        int status;
+        String text;
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+            connection.setRequestMethod(method);
+            connection.setConnectTimeout(TIMEOUT_MS);
+            connection.setReadTimeout(TIMEOUT_MS);
+            connection.setRequestProperty("Accept", "application/json");
+            if (!cookies.isEmpty()) {
+                connection.setRequestProperty("Cookie", cookieHeader());
+            }
+            if (body != null) {
+                byte[] bytes = GSON.toJson(body).getBytes(StandardCharsets.UTF_8);
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", "application/json");
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(bytes);
+                }
+            }
+
+            status = connection.getResponseCode();
+            storeCookies(connection.getHeaderFields().get("Set-Cookie"));
+            text = readBody(status < 400 ? connection.getInputStream() : connection.getErrorStream());
+        } catch (IOException e) {
+            recorder.record((System.nanoTime() - start) / 1000);
+            recorder.error();
+            return null;
+        }
+        recorder.record((System.nanoTime() - start) / 1000);
+
+        if (status < 200 || status >= 300) {
+            recorder.error();
+            return null;
+        }
+        try {
+            JsonObject json = JsonParser.parseString(text).getAsJsonObject();
+            if (json.has("success") && !json.get("success").getAsBoolean()) {
+                recorder.rejected();
+            }
+            return json;
+        } catch (RuntimeException e) {
+            recorder.error();
+            return null;
+        }
+    }
+
+    private String cookieHeader() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String> cookie : cookies.entrySet()) {
+            if (sb.length() > 0) {
+                sb.append("; ");
+            }
+            sb.append(cookie.getKey()).append('=').append(cookie.getValue());
+        }
+        return sb.toString();
+    }
+
+    private void storeCookies(List<String> headers) {
+        if (headers == null) {
+            return;
+        }
+        for (String header : headers) {
+            String pair = header.split(";", 2)[0];
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                cookies.put(pair.substring(0, eq).trim(), pair.substring(eq + 1).trim());
+            }
+        }
+    }
+
+    private static String readBody(InputStream in) throws IOException {
+        if (in == null) {
+            return "";
+        }
+        try (InputStream input = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = input.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.cartflow.loadtest;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 虚拟用户：注册 → 登录，然后循环 浏览商品 → 按关键字搜索 → 加入购物车，每隔几轮下一单；
+ * 每一步之间按配置随机停顿（思考时间）
+ */
+class VirtualUser implements Runnable {
+
+    static final String REGISTER = "POST /api/register";
+    static final String LOGIN = "POST /api/login";
+    static final String BROWSE = "GET /api/products";
+    static final String SEARCH = "GET /api/products?search";
+    static final String ADD_TO_CART = "POST /api/cart/add";
+    static final String CREATE_ORDER = "POST /api/orders/create";
+
+    private static final String PASSWORD = "loadtest123";
+
+    private final LoadTestConfig config;
+    private final Map<String, LatencyRecorder> recorders;
+    private final String username;
+    private final long deadline;
+    private final SessionClient client;
+
+    VirtualUser(LoadTestConfig config, Map<String, LatencyRecorder> recorders, String username, long deadline) {
+        this.config = config;
+        this.recorders = recorders;
+        this.username = username;
+        this.deadline = deadline;
+        this.client = new SessionClient(config.baseUrl);
+    }
+
+    @Override
+    public void run() {
+        try {
+            if (!signIn()) {
+                return;
+            }
+
+            int round = 0;
+            while (running()) {
+                JsonObject product = browse();
+                think();
+                if (product == null) {
+                    continue;
+                }
+
+                search(product);
+                think();
+
+                Map<String, Object> item = new HashMap<>();
+                item.put("productId", product.get("id").getAsInt());
+                item.put("quantity", 1);
+                client.call(recorders.get(ADD_TO_CART), "POST", "/api/cart/add", item);
+                think();
+
+                if (++round % config.ordersEvery == 0 && running()) {
+                    Map<String, Object> order = new HashMap<>();
+                    order.put("address", "Load Test Road " + round);
+                    client.call(recorders.get(CREATE_ORDER), "POST", "/api/orders/create", order);
+                    think();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean signIn() throws InterruptedException {
+        Map<String, Object> registration = new HashMap<>();
+        registration.put("username", username);
+        registration.put("password", PASSWORD);
+        registration.put("email", username + "@example.com");
+        if (client.call(recorders.get(REGISTER), "POST", "/api/register", registration) == null) {
+            return false;
+        }
+        think();
+
+        Map<String, Object> credentials = new HashMap<>();
+        credentials.put("username", username);
+        credentials.put("password", PASSWORD);
+        JsonObject login = client.call(recorders.get(LOGIN), "POST", "/api/login", credentials);
+        if (login == null || !login.get("success").getAsBoolean()) {
+            return false;
+        }
+        think();
+        return true;
+    }
+
+    /**
+     * 浏览商品列表，随机挑一个有库存的商品
+     */
+    private JsonObject browse() {
+        JsonObject response = client.call(recorders.get(BROWSE), "GET", "/api/products", null);
+        if (response == null || !response.has("data")) {
+            return null;
+        }
+
+        List<JsonObject> available = new ArrayList<>();
+        for (JsonElement element : response.getAsJsonArray("data")) {
+            JsonObject product = element.getAsJsonObject();
+            if (product.has("stock") && product.get("stock").getAsInt() > 0) {
+                available.add(product);
+            }
+        }
+        return available.isEmpty() ? null : available.get(ThreadLocalRandom.current().nextInt(available.size()));
+    }
+
+    /**
+     * 用选中商品名称里的一个词搜索
+     */
+    private void search(JsonObject product) {
+        String[] words = product.get("name").getAsString().split("\\s+");
+        String keyword = words[ThreadLocalRandom.current().nextInt(words.length)];
+        try {
+            client.call(recorders.get(SEARCH), "GET",
+                    "/api/products?search=" + URLEncoder.encode(keyword, "UTF-8"), null);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private boolean running() {
+        return System.nanoTime() < deadline && !Thread.currentThread().isInterrupted();
+    }
+
+    private void think() throws InterruptedException {
+        int pause = config.thinkMinMs;
+        if (config.thinkMaxMs > config.thinkMinMs) {
+            pause += ThreadLocalRandom.current().nextInt(config.thinkMaxMs - config.thinkMinMs + 1);
+        }
+        if (pause > 0) {
+            Thread.sleep(pause);
+        }
+    }
+
+    static List<String> endpoints() {
+        List<String> endpoints = new ArrayList<>();
+        endpoints.add(REGISTER);
+        endpoints.add(LOGIN);
+        endpoints.add(BROWSE);
+        endpoints.add(SEARCH);
+        endpoints.add(ADD_TO_CART);
+        endpoints.add(CREATE_ORDER);
+        return endpoints;
+    }
+}
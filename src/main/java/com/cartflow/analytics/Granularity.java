@@ -0,0 +1,36 @@
+package com.cartflow.analytics;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * 统计时间粒度
+ */
+public enum Granularity {
+    MINUTE(ChronoUnit.MINUTES),
+    HOUR(ChronoUnit.HOURS),
+    DAY(ChronoUnit.DAYS);
+
+    private final ChronoUnit unit;
+
+    Granularity(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    /**
+     * 时间所在桶的起始时间
+     */
+    public LocalDateTime truncate(LocalDateTime time) {
+        return time.truncatedTo(unit);
+    }
+
+    /**
+     * 解析请求参数，如 "minute"、"hour"、"day"，为空时按天
+     */
+    public static Granularity parse(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return DAY;
+        }
+        return valueOf(value.trim().toUpperCase());
+    }
+}
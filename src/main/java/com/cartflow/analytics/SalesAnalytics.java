@@ -0,0 +1,137 @@
+package com.cartflow.analytics;
+
+import com.cartflow.manager.OrderEventListener;
+import com.cartflow.manager.ProductManager;
+import com.cartflow.model.Order;
+import com.cartflow.model.Product;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 销售分析
+ * 监听订单事件，维护分钟、小时、天三级预聚合数据，按任意时间区间查询销售额、件数和订单数，
+ * 可按商品或分类细分。只统计未取消的订单。
+ *
+ * 订单列表加载时用并行流重新计算全部预聚合数据；之后每个订单事件只更新它所在的三个时间桶。
+ * 分钟桶和小时桶只保留最近一段时间（可配置），天桶一直保留。
+ */
+@Component
+public class SalesAnalytics implements OrderEventListener {
+
+    private static final String STATUS_CANCELLED = "cancelled";
+    private static final String UNKNOWN_CATEGORY = "unknown";
+
+    @Autowired
+    private ProductManager productManager;
+
+    @Value("${cartflow.analytics.minute-retention-hours:48}")
+    private int minuteRetentionHours;
+
+    @Value("${cartflow.analytics.hour-retention-days:90}")
+    private int hourRetentionDays;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Integer, String> categoryCache = new ConcurrentHashMap<>();
+
+    private SalesRollups rollups = new SalesRollups();
+
+    private LocalDateTime lastPrune = LocalDateTime.MIN;
+
+    @Override
+    public void ordersReloaded(Collection<Order> orders) {
+        SalesRollups rebuilt = orders.parallelStream()
+                .filter(SalesAnalytics::countsAsSale)
+                .collect(SalesRollups::new, (r, order) -> r.add(order, 1, this::categoryOf), SalesRollups::merge);
+
+        lock.writeLock().lock();
+        try {
+            rollups = rebuilt;
+            prune(LocalDateTime.now());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void orderCreated(Order order) {
+        if (countsAsSale(order)) {
+            apply(order, 1);
+        }
+    }
+
+    @Override
+    public void orderStatusChanged(Order order, String oldStatus) {
+        boolean wasSale = !STATUS_CANCELLED.equals(oldStatus);
+        boolean isSale = countsAsSale(order);
+        if (wasSale != isSale) {
+            apply(order, isSale ? 1 : -1);
+        }
+    }
+
+    @Override
+    public void orderDeleted(Order order) {
+        if (countsAsSale(order)) {
+            apply(order, -1);
+        }
+    }
+
+    /**
+     * 查询 [from, to) 区间的销售数据
+     *
+     * @param granularity 时间粒度
+     * @param groupBy     细分维度: "product"、"category"，为空时不细分
+     */
+    public SalesReport query(LocalDateTime from, LocalDateTime to, Granularity granularity, String groupBy) {
+        SalesRollups.GroupBy dimension = SalesRollups.GroupBy.parse(groupBy);
+        lock.readLock().lock();
+        try {
+            return rollups.query(from, to, granularity, dimension);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void apply(Order order, int sign) {
+        lock.writeLock().lock();
+        try {
+            rollups.add(order, sign, this::categoryOf);
+
+            // 每分钟最多清理一次过期的细粒度桶
+            LocalDateTime now = LocalDateTime.now();
+            if (now.isAfter(lastPrune.plusMinutes(1))) {
+                prune(now);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void prune(LocalDateTime now) {
+        rollups.prune(Granularity.MINUTE, now.minusHours(minuteRetentionHours));
+        rollups.prune(Granularity.HOUR, now.minusDays(hourRetentionDays));
+        lastPrune = now;
+    }
+
+    /**
+     * 商品所属分类（缓存，撤销订单时按计入时的分类扣除）
+     */
+    private String categoryOf(int productId) {
+        return categoryCache.computeIfAbsent(productId, id -> {
+            Product product = productManager.getProductById(id);
+            return product != null && product.getCategory() != null ? product.getCategory() : UNKNOWN_CATEGORY;
+        });
+    }
+
+    private static boolean countsAsSale(Order order) {
+        return !STATUS_CANCELLED.equals(order.getStatus());
+    }
+}
@@ -0,0 +1,56 @@
+package com.cartflow.analytics;
+
+import java.math.BigDecimal;
+
+/**
+ * 销售指标：订单数、售出件数、销售额
+ */
+public class SalesMetrics {
+    private int orders;
+    private long units;
+    private BigDecimal revenue = BigDecimal.ZERO;
+
+    public SalesMetrics() {
+    }
+
+    public SalesMetrics(SalesMetrics other) {
+        this.orders = other.orders;
+        this.units = other.units;
+        this.revenue = other.revenue;
+    }
+
+    /**
+     * 累加增量
+     */
+    void add(int orders, long units, BigDecimal revenue) {
+        this.orders += orders;
+        this.units += units;
+        this.revenue = this.revenue.add(revenue);
+    }
+
+    /**
+     * 以sign（+1或-1）计入或扣除另一组指标
+     */
+    void merge(SalesMetrics other, int sign) {
+        this.orders += sign * other.orders;
+        this.units += sign * other.units;
+        this.revenue = sign > 0 ? this.revenue.add(other.revenue) : this.revenue.subtract(other.revenue);
+    }
+
+    boolean isEmpty() {
+        return orders == 0 && units == 0 && revenue.signum() == 0;
+    }
+
+    // Getters
+    public int getOrders() {
+        return orders;
+    }
+
+    public long getUnits() {
+        return units;
+    }
+
+    public BigDecimal getRevenue() {
+        return revenue;
+    }
+}
@@ -0,0 +1,17 @@
+package com.cartflow.analytics;
+
+/**
+ * 时间序列中的一个点：桶的起始时间和该桶的销售指标
+ */
+public class SalesPoint extends SalesMetrics {
+    private final String time;
+
+    public SalesPoint(String time, SalesMetrics metrics) {
+        super(metrics);
+        this.time = time;
+    }
+
+    public String getTime() {
+        return time;
+    }
+}
@@ -0,0 +1,65 @@
+package com.cartflow.analytics;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 销售统计查询结果
+ * series为区间内每个非空时间桶的指标（按时间升序），breakdown为按商品或分类汇总的指标（未分组时为null）
+ */
+public class SalesReport {
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final String granularity;
+    private final String from;
+    private final String to;
+    private SalesMetrics totals = new SalesMetrics();
+    private List<SalesPoint> series = new ArrayList<>();
+    private Map<String, SalesMetrics> breakdown;
+
+    public SalesReport(Granularity granularity, LocalDateTime from, LocalDateTime to) {
+        this.granularity = granularity.name().toLowerCase();
+        this.from = from.format(TIME_FORMAT);
+        this.to = to.format(TIME_FORMAT);
+    }
+
+    // Getters and Setters
+    public String getGranularity() {
+        return granularity;
+    }
+
+    public String getFrom() {
+        return from;
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public SalesMetrics getTotals() {
+        return totals;
+    }
+
+    public void setTotals(SalesMetrics totals) {
+        this.totals = totals;
+    }
+
+    public List<SalesPoint> getSeries() {
+        return series;
+    }
+
+    public void setSeries(List<SalesPoint> series) {
+        this.series = series;
+    }
+
+    public Map<String, SalesMetrics> getBreakdown() {
+        return breakdown;
+    }
+
+    public void setBreakdown(Map<String, SalesMetrics> breakdown) {
+        this.breakdown = breakdown;
+    }
+}
@@ -0,0 +1,192 @@
+package com.cartflow.analytics;
+
+import com.cartflow.model.CartItem;
+import com.cartflow.model.Order;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * 按时间桶预聚合的销售数据（分钟、小时、天三级）
+ * 每个订单计入它所在的分钟桶、小时桶和天桶，桶内同时按商品和分类细分；
+ * 查询只合并区间内的桶，耗时与订单总数无关。非线程安全，由SalesAnalytics加锁访问。
+ */
+class SalesRollups {
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final Map<Granularity, NavigableMap<LocalDateTime, Bucket>> buckets = new EnumMap<>(Granularity.class);
+
+    SalesRollups() {
+        for (Granularity granularity : Granularity.values()) {
+            buckets.put(granularity, new TreeMap<>());
+        }
+    }
+
+    /**
+     * 以sign（+1或-1）把一个订单计入或移出所有粒度的桶；下单时间无法解析的订单忽略
+     */
+    void add(Order order, int sign, Function<Integer, String> categoryResolver) {
+        LocalDateTime time = parseTime(order.getCreateTime());
+        if (time == null) {
+            return;
+        }
+
+        Contribution contribution = new Contribution(order, categoryResolver);
+        for (Granularity granularity : Granularity.values()) {
+            NavigableMap<LocalDateTime, Bucket> series = buckets.get(granularity);
+            LocalDateTime start = granularity.truncate(time);
+            Bucket bucket = series.computeIfAbsent(start, t -> new Bucket());
+            bucket.apply(contribution, sign);
+            if (bucket.total.isEmpty()) {
+                series.remove(start);
+            }
+        }
+    }
+
+    /**
+     * 合并另一份预聚合数据（并行重建时使用）
+     */
+    void merge(SalesRollups other) {
+        for (Granularity granularity : Granularity.values()) {
+            NavigableMap<LocalDateTime, Bucket> series = buckets.get(granularity);
+            for (Map.Entry<LocalDateTime, Bucket> entry : other.buckets.get(granularity).entrySet()) {
+                series.computeIfAbsent(entry.getKey(), t -> new Bucket()).merge(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * 丢弃早于cutoff的桶（细粒度的桶只保留最近一段时间）
+     */
+    void prune(Granularity granularity, LocalDateTime cutoff) {
+        buckets.get(granularity).headMap(cutoff, false).clear();
+    }
+
+    /**
+     * 查询 [from, to) 区间的销售数据
+     */
+    SalesReport query(LocalDateTime from, LocalDateTime to, Granularity granularity, GroupBy groupBy) {
+        SalesReport report = new SalesReport(granularity, from, to);
+        SalesMetrics totals = new SalesMetrics();
+        Map<String, SalesMetrics> breakdown = groupBy != GroupBy.NONE ? new HashMap<>() : null;
+        List<SalesPoint> series = new ArrayList<>();
+
+        if (from.isBefore(to)) {
+            NavigableMap<LocalDateTime, Bucket> range =
+                    buckets.get(granularity).subMap(granularity.truncate(from), true, to, false);
+            for (Map.Entry<LocalDateTime, Bucket> entry : range.entrySet()) {
+                Bucket bucket = entry.getValue();
+                series.add(new SalesPoint(entry.getKey().format(TIME_FORMAT), bucket.total));
+                totals.merge(bucket.total, 1);
+                if (breakdown != null) {
+                    mergeInto(breakdown, groupBy == GroupBy.PRODUCT ? bucket.byProduct : bucket.byCategory);
+                }
+            }
+        }
+
+        report.setTotals(totals);
+        report.setSeries(series);
+        report.setBreakdown(breakdown);
+        return report;
+    }
+
+    private static LocalDateTime parseTime(String createTime) {
+        if (createTime == null) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(createTime, TIME_FORMAT);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static void mergeInto(Map<String, SalesMetrics> target, Map<String, SalesMetrics> source) {
+        for (Map.Entry<String, SalesMetrics> entry : source.entrySet()) {
+            target.computeIfAbsent(entry.getKey(), k -> new SalesMetrics()).merge(entry.getValue(), 1);
+        }
+    }
+
+    /**
+     * 汇总维度
+     */
+    enum GroupBy {
+        NONE, PRODUCT, CATEGORY;
+
+        static GroupBy parse(String value) {
+            if (value == null || value.trim().isEmpty()) {
+                return NONE;
+            }
+            return valueOf(value.trim().toUpperCase());
+        }
+    }
+
+    /**
+     * 一个订单对各维度的贡献，计算一次后计入三个粒度的桶
+     */
+    private static class Contribution {
+        private final SalesMetrics total = new SalesMetrics();
+        private final Map<String, SalesMetrics> byProduct = new HashMap<>();
+        private final Map<String, SalesMetrics> byCategory = new HashMap<>();
+
+        Contribution(Order order, Function<Integer, String> categoryResolver) {
+            long units = 0;
+            if (order.getItems() != null) {
+                for (CartItem item : order.getItems()) {
+                    BigDecimal itemRevenue = BigDecimal.valueOf(item.getPrice())
+                            .multiply(BigDecimal.valueOf(item.getQuantity()));
+                    units += item.getQuantity();
+                    addLine(byProduct, String.valueOf(item.getProductId()), item.getQuantity(), itemRevenue);
+                    addLine(byCategory, categoryResolver.apply(item.getProductId()), item.getQuantity(), itemRevenue);
+                }
+            }
+            total.add(1, units, BigDecimal.valueOf(order.getTotalAmount()));
+        }
+
+        /**
+         * 同一订单在同一商品或分类下只算一单，件数和金额累加
+         */
+        private static void addLine(Map<String, SalesMetrics> lines, String key, long units, BigDecimal revenue) {
+            SalesMetrics line = lines.computeIfAbsent(key, k -> new SalesMetrics());
+            line.add(line.getOrders() == 0 ? 1 : 0, units, revenue);
+        }
+    }
+
+    private static class Bucket {
+        private final SalesMetrics total = new SalesMetrics();
+        private final Map<String, SalesMetrics> byProduct = new HashMap<>();
+        private final Map<String, SalesMetrics> byCategory = new HashMap<>();
+
+        void apply(Contribution contribution, int sign) {
+            total.merge(contribution.total, sign);
+            applyLines(byProduct, contribution.byProduct, sign);
+            applyLines(byCategory, contribution.byCategory, sign);
+        }
+
+        void merge(Bucket other) {
+            total.merge(other.total, 1);
+            mergeInto(byProduct, other.byProduct);
+            mergeInto(byCategory, other.byCategory);
+        }
+
+        private static void applyLines(Map<String, SalesMetrics> target, Map<String, SalesMetrics> lines, int sign) {
+            for (Map.Entry<String, SalesMetrics> line : lines.entrySet()) {
+                SalesMetrics metrics = target.computeIfAbsent(line.getKey(), k -> new SalesMetrics());
+                metrics.merge(line.getValue(), sign);
+                if (metrics.isEmpty()) {
+                    target.remove(line.getKey());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.cartflow.auth;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 密码哈希
+ * 新密码使用加盐的 PBKDF2-HMAC-SHA256，存储格式为 pbkdf2-sha256$迭代次数$盐$哈希（盐和哈希为base64），
+ * 迭代次数可配置；旧的无盐MD5（32位十六进制）仍可校验，校验通过时顺便生成新格式的哈希供调用方替换，
+ * 迭代次数低于当前配置的哈希同样升级。
+ *
+ * 哈希计算在专用的有界线程池中执行，不占用处理商品、购物车请求的Tomcat线程；
+ * 队列满时立即失败（RejectedExecutionException），登录高峰不会无限堆积请求。
+ */
+@Component
+public class PasswordHasher {
+
+    private static final String ALGORITHM = "pbkdf2-sha256";
+    private static final String KEY_ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final String SEPARATOR = "$";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    private static final int LEGACY_MD5_LENGTH = 32;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final Base64.Encoder ENCODER = Base64.getEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getDecoder();
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${cartflow.password.iterations:310000}")
+    private int iterations;
+
+    @Value("${cartflow.password.threads:2}")
+    private int threads;
+
+    @Value("${cartflow.password.queue-capacity:200}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor executor;
+
+    private volatile String dummyHash;
+
+    private Timer hashTimer;
+    private Timer verifyTimer;
+    private Counter rejected;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread thread = new Thread(r, "cartflow-password-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        Gauge.builder("cartflow.password.queue", executor, e -> e.getQueue().size())
+                .description("Password hashing tasks waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("cartflow.password.active", executor, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+        hashTimer = timer("hash");
+        verifyTimer = timer("verify");
+        rejected = Counter.builder("cartflow.password.rejected").register(meterRegistry);
+
+        // 预先计算哑哈希，第一次查询不存在的用户时不会多花一次计算
+        executor.execute(this::dummyHash);
+    }
+
+    private Timer timer(String operation) {
+        return Timer.builder("cartflow.password.time")
+                .tag("operation", operation)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * 校验结果
+     */
+    public static class Verification {
+        private static final Verification MISMATCH = new Verification(false, null);
+
+        private final boolean matches;
+        private final String upgradedHash;
+
+        private Verification(boolean matches, String upgradedHash) {
+            this.matches = matches;
+            this.upgradedHash = upgradedHash;
+        }
+
+        public boolean matches() {
+            return matches;
+        }
+
+        /**
+         * 存储的哈希是旧格式或迭代次数不足时，返回用当前配置重新计算的哈希，否则返回null
+         */
+        public String getUpgradedHash() {
+            return upgradedHash;
+        }
+    }
+
+    /**
+     * 异步计算新密码的哈希
+     */
+    public CompletableFuture<String> hash(String password) {
+        return submit(() -> hashTimer.record(() -> pbkdf2(password, iterations)));
+    }
+
+    /**
+     * 异步校验密码
+     */
+    public CompletableFuture<Verification> verify(String password, String stored) {
+        return submit(() -> verifyTimer.record(() -> verifyNow(password, stored)));
+    }
+
+    /**
+     * 校验不存在的用户：对一个相同迭代次数的哑哈希做一次完整校验并丢弃结果，
+     * 与存在的用户耗时相同，无法从响应时间判断用户名是否存在
+     */
+    public CompletableFuture<Verification> verifyUnknown(String password) {
+        return submit(() -> verifyTimer.record(() -> {
+            verifyNow(password, dummyHash());
+            return Verification.MISMATCH;
+        }));
+    }
+
+    /**
+     * 哑哈希启动时在线程池中计算，此前用到时就地计算；并发计算只会多算一次，无需加锁
+     */
+    private String dummyHash() {
+        String hash = dummyHash;
+        if (hash == null) {
+            hash = pbkdf2("", iterations);
+            dummyHash = hash;
+        }
+        return hash;
+    }
+
+    private Verification verifyNow(String password, String stored) {
+        if (password == null || stored == null) {
+            return Verification.MISMATCH;
+        }
+
+        if (!stored.startsWith(ALGORITHM + SEPARATOR)) {
+            if (stored.length() != LEGACY_MD5_LENGTH || !MessageDigest.isEqual(
+                    md5Hex(password).getBytes(StandardCharsets.US_ASCII), stored.getBytes(StandardCharsets.US_ASCII))) {
+                // MD5 校验很快，失败时补上一次同等代价的计算，与其他用户的耗时一致
+                verifyNow(password, dummyHash());
+                return Verification.MISMATCH;
+            }
+            return new Verification(true, pbkdf2(password, iterations));
+        }
+
+        String[] parts = stored.split("\\$");
+        if (parts.length != 4) {
+            return Verification.MISMATCH;
+        }
+        try {
+            int storedIterations = Integer.parseInt(parts[1]);
+            byte[] salt = DECODER.decode(parts[2]);
+            byte[] expected = DECODER.decode(parts[3]);
+            if (!MessageDigest.isEqual(derive(password, salt, storedIterations, expected.length * 8), expected)) {
+                return Verification.MISMATCH;
+            }
+            return new Verification(true, storedIterations < iterations ? pbkdf2(password, iterations) : null);
+        } catch (IllegalArgumentException e) {
+            return Verification.MISMATCH;
+        }
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            CompletableFuture<T> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    /**
+     * 用新的随机盐计算 PBKDF2 哈希，返回存储格式
+     */
+    public static String pbkdf2(String password, int iterations) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        byte[] hash = derive(password, salt, iterations, HASH_BITS);
+        return ALGORITHM + SEPARATOR + iterations + SEPARATOR + ENCODER.encodeToString(salt)
+                + SEPARATOR + ENCODER.encodeToString(hash);
+    }
+
+    private static byte[] derive(String password, byte[] salt, int iterations, int bits) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, bits);
+        try {
+            return SecretKeyFactory.getInstance(KEY_ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PBKDF2 not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    /**
+     * 旧格式：无盐MD5的十六进制
+     */
+    private static String md5Hex(String password) {
+        try {
+            byte[] bytes = MessageDigest.getInstance("MD5").digest(password.getBytes(StandardCharsets.UTF_8));
+            char[] hex = new char[bytes.length * 2];
+            for (int i = 0; i < bytes.length; i++) {
+                hex[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+                hex[i * 2 + 1] = HEX[bytes[i] & 0xf];
+            }
+            return new String(hex);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("MD5 not available", e);
+        }
+    }
+}
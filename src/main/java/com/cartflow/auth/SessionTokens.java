@@ -0,0 +1,280 @@
+package com.cartflow.auth;
+
+import com.cartflow.manager.UserManager;
+import com.cartflow.model.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * 无状态登录令牌
+ * cartflow.auth.mode=token 时登录不再写入 HttpSession，而是签发令牌：
+ *   base64url(过期时间|签发时间|userId|凭据戳|role|username) + "." + base64url(HMAC-SHA256签名)
+ * 令牌放在 HttpOnly Cookie 中（前端无需改动），也可以通过 Authorization: Bearer 传递。
+ * 服务端不保存任何登录状态，多节点部署时各节点配置相同的密钥即可。
+ *
+ * 每次请求按 userId 在内存中查一次用户：用户已删除、或凭据戳（由密码哈希计算）与当前密码不符时令牌失效，
+ * 修改密码即可作废该用户已签发的所有令牌；角色和用户名取用户当前的值。
+ * 令牌临近过期时自动换发，但自首次登录起最长有效 token-max-age-hours，泄露的令牌不会因持续使用而一直有效。
+ */
+@Component
+public class SessionTokens {
+
+    public static final String MODE_TOKEN = "token";
+    public static final String COOKIE_NAME = "CARTFLOW_TOKEN";
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final String BEARER_PREFIX = "Bearer ";
+    private static final String SEPARATOR = "|";
+    private static final int SECRET_BYTES = 32;
+    private static final int STAMP_BYTES = 9;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    @Value("${cartflow.auth.mode:session}")
+    private String mode;
+
+    @Value("${cartflow.auth.token-secret:}")
+    private String secret;
+
+    @Value("${cartflow.auth.token-ttl-minutes:30}")
+    private long ttlMinutes;
+
+    @Value("${cartflow.auth.token-max-age-hours:12}")
+    private long maxAgeHours;
+
+    @Autowired
+    private UserManager userManager;
+
+    private SecretKeySpec key;
+
+    @PostConstruct
+    public void init() {
+        byte[] secretBytes;
+        if (secret == null || secret.isEmpty()) {
+            secretBytes = new byte[SECRET_BYTES];
+            new SecureRandom().nextBytes(secretBytes);
+            if (isEnabled()) {
+                System.err.println("cartflow.auth.token-secret not set, using a random key: "
+                        + "tokens are invalidated on restart and not shared between nodes");
+            }
+        } else {
+            secretBytes = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        key = new SecretKeySpec(secretBytes, HMAC_ALGORITHM);
+    }
+
+    /**
+     * 是否启用令牌模式
+     */
+    public boolean isEnabled() {
+        return MODE_TOKEN.equalsIgnoreCase(mode);
+    }
+
+    /**
+     * 为登录用户签发令牌并写入 Cookie
+     *
+     * @return 令牌，供不使用 Cookie 的客户端放入 Authorization 头
+     */
+    public String issue(User user, HttpServletResponse response) {
+        long now = System.currentTimeMillis() / 1000;
+        String token = sign(claimsFor(user, now, expiresAt(now, now)));
+        setCookie(response, token, Duration.ofSeconds(expiresAt(now, now) - now));
+        return token;
+    }
+
+    /**
+     * 快过期（剩余不足一半有效期）的令牌换发新令牌，效果与会话的空闲超时相同
+     * 换发的令牌保留首次签发时间，过期时间不超过最长有效期；调用方传入的 claims 须已通过 authenticate
+     */
+    void renewIfNeeded(Claims claims, HttpServletResponse response) {
+        long now = System.currentTimeMillis() / 1000;
+        long expiresAt = expiresAt(claims.getIssuedAt(), now);
+        if (claims.getExpiresAt() - now < ttlMinutes * 30 && expiresAt > claims.getExpiresAt()) {
+            String token = sign(new Claims(claims.getUserId(), claims.getRole(), claims.getUsername(),
+                    claims.getIssuedAt(), expiresAt, claims.getStamp()));
+            setCookie(response, token, Duration.ofSeconds(expiresAt - now));
+        }
+    }
+
+    /**
+     * 新的过期时间：一个有效期之后，但不超过首次签发时间加最长有效期
+     */
+    private long expiresAt(long issuedAt, long now) {
+        return Math.min(now + ttlMinutes * 60, issuedAt + maxAgeHours * 3600);
+    }
+
+    private Claims claimsFor(User user, long issuedAt, long expiresAt) {
+        return new Claims(user.getId(), user.getRole(), user.getUsername(), issuedAt, expiresAt, stamp(user));
+    }
+
+    /**
+     * 凭据戳：密码哈希的HMAC摘要（截断），密码修改后改变；不会在令牌中暴露密码哈希本身
+     */
+    private String stamp(User user) {
+        byte[] digest = hmac(("credential" + SEPARATOR + user.getPassword()).getBytes(StandardCharsets.UTF_8));
+        return ENCODER.encodeToString(Arrays.copyOf(digest, STAMP_BYTES));
+    }
+
+    /**
+     * 登出时清除 Cookie（令牌本身在过期前仍然有效，修改密码才能作废）
+     */
+    public void clear(HttpServletResponse response) {
+        setCookie(response, "", Duration.ZERO);
+    }
+
+    /**
+     * 从请求中读取并校验令牌，再核对用户当前状态
+     *
+     * @return 按用户当前角色和用户名构造的登录信息；没有令牌、校验失败、用户已删除或密码已修改时返回null
+     */
+    Claims authenticate(HttpServletRequest request) {
+        Claims claims = verify(request);
+        if (claims == null) {
+            return null;
+        }
+
+        User user = userManager.getUserById(claims.getUserId());
+        if (user == null || !MessageDigest.isEqual(stamp(user).getBytes(StandardCharsets.US_ASCII),
+                claims.getStamp().getBytes(StandardCharsets.US_ASCII))) {
+            return null;
+        }
+        return claimsFor(user, claims.getIssuedAt(), claims.getExpiresAt());
+    }
+
+    /**
+     * 从请求中读取并校验令牌的签名和有效期，没有令牌或校验失败时返回null
+     */
+    private Claims verify(HttpServletRequest request) {
+        String token = null;
+        String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (authorization != null && authorization.startsWith(BEARER_PREFIX)) {
+            token = authorization.substring(BEARER_PREFIX.length()).trim();
+        } else if (request.getCookies() != null) {
+            for (Cookie cookie : request.getCookies()) {
+                if (COOKIE_NAME.equals(cookie.getName())) {
+                    token = cookie.getValue();
+                }
+            }
+        }
+        return token == null || token.isEmpty() ? null : verify(token);
+    }
+
+    private Claims verify(String token) {
+        int dot = token.indexOf('.');
+        if (dot < 0) {
+            return null;
+        }
+
+        try {
+            byte[] payload = DECODER.decode(token.substring(0, dot));
+            byte[] signature = DECODER.decode(token.substring(dot + 1));
+            if (!MessageDigest.isEqual(signature, hmac(payload))) {
+                return null;
+            }
+
+            String[] fields = new String(payload, StandardCharsets.UTF_8).split("\\|", 6);
+            if (fields.length != 6) {
+                return null;
+            }
+            Claims claims = new Claims(Integer.parseInt(fields[2]), fields[4], fields[5],
+                    Long.parseLong(fields[1]), Long.parseLong(fields[0]), fields[3]);
+            return claims.getExpiresAt() > System.currentTimeMillis() / 1000 ? claims : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private String sign(Claims claims) {
+        String role = claims.getRole();
+        byte[] payload = (claims.getExpiresAt() + SEPARATOR + claims.getIssuedAt() + SEPARATOR + claims.getUserId()
+                + SEPARATOR + claims.getStamp() + SEPARATOR + role + SEPARATOR + claims.getUsername())
+                .getBytes(StandardCharsets.UTF_8);
+        return ENCODER.encodeToString(payload) + "." + ENCODER.encodeToString(hmac(payload));
+    }
+
+    /**
+     * Mac 实例不是线程安全的，每次签名新建一个（初始化只是复制密钥，开销很小）
+     */
+    private byte[] hmac(byte[] payload) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(payload);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC not available", e);
+        }
+    }
+
+    private static void setCookie(HttpServletResponse response, String value, Duration maxAge) {
+        ResponseCookie cookie = ResponseCookie.from(COOKIE_NAME, value)
+                .path("/")
+                .httpOnly(true)
+                .sameSite("Lax")
+                .maxAge(maxAge)
+                .build();
+        response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+    }
+
+    /**
+     * 令牌中携带的登录信息
+     */
+    static class Claims {
+        private final int userId;
+        private final String role;
+        private final String username;
+        private final long issuedAt;
+        private final long expiresAt;
+        private final String stamp;
+
+        Claims(int userId, String role, String username, long issuedAt, long expiresAt, String stamp) {
+            this.userId = userId;
+            this.role = role != null ? role : "";
+            this.username = username;
+            this.issuedAt = issuedAt;
+            this.expiresAt = expiresAt;
+            this.stamp = stamp;
+        }
+
+        int getUserId() {
+            return userId;
+        }
+
+        String getRole() {
+            return role;
+        }
+
+        String getUsername() {
+            return username;
+        }
+
+        long getIssuedAt() {
+            return issuedAt;
+        }
+
+        long getExpiresAt() {
+            return expiresAt;
+        }
+
+        String getStamp() {
+            return stamp;
+        }
+    }
+}
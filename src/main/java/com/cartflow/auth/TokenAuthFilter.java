@@ -0,0 +1,81 @@
+package com.cartflow.auth;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import java.io.IOException;
+
+/**
+ * 令牌模式的认证过滤器（cartflow.auth.mode=token 时启用）
+ * 校验请求携带的令牌，把请求包装成 getSession() 返回 TokenSession 的请求，
+ * 容器不会为任何访客创建会话，内存占用与在线人数无关。
+ * 令牌缺失、过期、签名不对，或用户已删除、密码已修改时按未登录处理，由各接口自行返回"未登录"。
+ */
+@Component
+@ConditionalOnProperty(name = "cartflow.auth.mode", havingValue = SessionTokens.MODE_TOKEN)
+public class TokenAuthFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private SessionTokens sessionTokens;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+        SessionTokens.Claims claims = sessionTokens.authenticate(request);
+        if (claims != null) {
+            sessionTokens.renewIfNeeded(claims, response);
+        }
+        chain.doFilter(new TokenRequest(request, claims), response);
+    }
+
+    /**
+     * 会话由令牌构造，不经过容器的会话管理
+     */
+    private static class TokenRequest extends HttpServletRequestWrapper {
+        private final SessionTokens.Claims claims;
+        private TokenSession session;
+
+        TokenRequest(HttpServletRequest request, SessionTokens.Claims claims) {
+            super(request);
+            this.claims = claims;
+        }
+
+        @Override
+        public HttpSession getSession(boolean create) {
+            if (session != null && !session.isInvalidated()) {
+                return session;
+            }
+
+            // 令牌只在第一次取会话时使用，登出（invalidate）之后再取到的是空会话
+            boolean fromToken = session == null && claims != null;
+            if (!create && !fromToken) {
+                return null;
+            }
+            session = new TokenSession(getServletContext(), fromToken ? claims : null);
+            return session;
+        }
+
+        @Override
+        public HttpSession getSession() {
+            return getSession(true);
+        }
+
+        @Override
+        public String getRequestedSessionId() {
+            return null;
+        }
+
+        @Override
+        public boolean isRequestedSessionIdValid() {
+            return false;
+        }
+    }
+}
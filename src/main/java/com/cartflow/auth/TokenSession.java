@@ -0,0 +1,133 @@
+package com.cartflow.auth;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpSession;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 令牌模式下的会话
+ * 只在当前请求内存在，属性来自令牌（userId/username/role），不登记到容器的会话表，
+ * 控制器照常通过 HttpSession 读取登录信息；请求内写入的属性在请求结束后丢弃。
+ */
+class TokenSession implements HttpSession {
+
+    private final ServletContext servletContext;
+    private final Map<String, Object> attributes = new HashMap<>();
+    private final long creationTime = System.currentTimeMillis();
+    private final boolean isNew;
+    private boolean invalidated;
+
+    TokenSession(ServletContext servletContext, SessionTokens.Claims claims) {
+        this.servletContext = servletContext;
+        this.isNew = claims == null;
+        if (claims != null) {
+            attributes.put("userId", claims.getUserId());
+            attributes.put("username", claims.getUsername());
+            if (!claims.getRole().isEmpty()) {
+                attributes.put("role", claims.getRole());
+            }
+        }
+    }
+
+    boolean isInvalidated() {
+        return invalidated;
+    }
+
+    @Override
+    public long getCreationTime() {
+        return creationTime;
+    }
+
+    @Override
+    public String getId() {
+        return "";
+    }
+
+    @Override
+    public long getLastAccessedTime() {
+        return creationTime;
+    }
+
+    @Override
+    public ServletContext getServletContext() {
+        return servletContext;
+    }
+
+    @Override
+    public void setMaxInactiveInterval(int interval) {
+    }
+
+    @Override
+    public int getMaxInactiveInterval() {
+        return 0;
+    }
+
+    @Override
+    @Deprecated
+    @SuppressWarnings("deprecation")
+    public javax.servlet.http.HttpSessionContext getSessionContext() {
+        return null;
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    @Override
+    @Deprecated
+    public Object getValue(String name) {
+        return getAttribute(name);
+    }
+
+    @Override
+    public Enumeration<String> getAttributeNames() {
+        return Collections.enumeration(attributes.keySet());
+    }
+
+    @Override
+    @Deprecated
+    public String[] getValueNames() {
+        return attributes.keySet().toArray(new String[0]);
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        if (value == null) {
+            attributes.remove(name);
+        } else {
+            attributes.put(name, value);
+        }
+    }
+
+    @Override
+    @Deprecated
+    public void putValue(String name, Object value) {
+        setAttribute(name, value);
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        attributes.remove(name);
+    }
+
+    @Override
+    @Deprecated
+    public void removeValue(String name) {
+        removeAttribute(name);
+    }
+
+    @Override
+    public void invalidate() {
+        attributes.clear();
+        invalidated = true;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+}
@@ -0,0 +1,90 @@
+package com.cartflow.controller;
+
+import com.cartflow.analytics.Granularity;
+import com.cartflow.analytics.SalesAnalytics;
+import com.cartflow.analytics.SalesReport;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpSession;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 销售分析控制器（管理员）
+ */
+@RestController
+@RequestMapping("/api/analytics")
+@CrossOrigin(originPatterns = "*", allowCredentials = "true")
+public class AnalyticsController {
+
+    private static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Autowired
+    private SalesAnalytics salesAnalytics;
+
+    /**
+     * 按时间区间查询销售额、件数和订单数
+     * from/to 格式为 yyyy-MM-dd 或 yyyy-MM-dd HH:mm:ss，区间为 [from, to)；
+     * 未指定时 to 为当前时间，from 按粒度取最近60分钟、24小时或30天。
+     * granularity: minute / hour / day（默认day）；groupBy: product / category（默认不细分）
+     */
+    @GetMapping("/sales")
+    public ResponseEntity<Map<String, Object>> getSales(
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) String granularity,
+            @RequestParam(required = false) String groupBy,
+            HttpSession session) {
+
+        Map<String, Object> response = new HashMap<>();
+
+        String role = (String) session.getAttribute("role");
+
+        if (!"admin".equals(role)) {
+            response.put("success", false);
+            response.put("message", "无权限");
+            return ResponseEntity.ok(response);
+        }
+
+        try {
+            Granularity unit = Granularity.parse(granularity);
+            LocalDateTime end = to != null ? parseTime(to) : LocalDateTime.now();
+            LocalDateTime start = from != null ? parseTime(from) : defaultStart(end, unit);
+
+            SalesReport report = salesAnalytics.query(start, end, unit, groupBy);
+
+            response.put("success", true);
+            response.put("data", report);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            response.put("success", false);
+            response.put("message", "参数错误");
+        }
+
+        return ResponseEntity.ok(response);
+    }
+
+    private static LocalDateTime parseTime(String value) {
+        String text = value.trim();
+        if (text.length() == 10) {
+            return LocalDate.parse(text).atStartOfDay();
+        }
+        return LocalDateTime.parse(text, DATE_TIME_FORMAT);
+    }
+
+    private static LocalDateTime defaultStart(LocalDateTime end, Granularity unit) {
+        switch (unit) {
+            case MINUTE:
+                return end.minusMinutes(60);
+            case HOUR:
+                return end.minusHours(24);
+            default:
+                return end.minusDays(30);
+        }
+    }
+}
@@ -1,12 +1,15 @@
 package com.cartflow.controller;
 
 import com.cartflow.manager.CartManager;
+import com.cartflow.model.ApiResponse;
 import com.cartflow.model.ShoppingCart;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -22,26 +25,23 @@ public class CartController {
     @Autowired
     private CartManager cartManager;
 
+    @Autowired
+    private JsonResponseWriter responseWriter;
+
     /**
-     * 获取购物车
+     * 获取购物车（由 JsonResponseWriter 直接流式输出）
      */
     @GetMapping
-    public ResponseEntity<Map<String, Object>> getCart(HttpSession session) {
-        Map<String, Object> response = new HashMap<>();
-
+    public void getCart(HttpSession session, HttpServletResponse response) throws IOException {
         Integer userId = (Integer) session.getAttribute("userId");
 
         if (userId == null) {
-            response.put("success", false);
-            response.put("message", "未登录");
-            return ResponseEntity.ok(response);
+            responseWriter.writeCart(response, ApiResponse.fail("未登录"));
+            return;
         }
 
         ShoppingCart cart = cartManager.getUserCart(userId);
-        response.put("success", true);
-        response.put("data", cart);
-
-        return ResponseEntity.ok(response);
+        responseWriter.writeCart(response, ApiResponse.ok(cart));
     }
 
     /**
@@ -0,0 +1,246 @@
+package com.cartflow.controller;
+
+import com.cartflow.model.ApiResponse;
+import com.cartflow.model.CartItem;
+import com.cartflow.model.Order;
+import com.cartflow.model.Product;
+import com.cartflow.model.ShoppingCart;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * 高频接口（商品列表、购物车、订单列表）的响应输出
+ * 不经过 Map 和反射序列化：字段名预先编码为UTF-8字节，用 JsonGenerator 直接流式写入响应输出流，
+ * 默认紧凑输出，cartflow.http.pretty-print=true 时缩进（仅用于调试）。
+ * 输出的字段与 Jackson 按 getter 序列化的结果一致，前端无需改动。
+ */
+@Component
+public class JsonResponseWriter {
+
+    // 响应结构
+    private static final SerializableString SUCCESS = new SerializedString("success");
+    private static final SerializableString MESSAGE = new SerializedString("message");
+    private static final SerializableString DATA = new SerializedString("data");
+    private static final SerializableString TOTAL = new SerializedString("total");
+    private static final SerializableString PAGE = new SerializedString("page");
+    private static final SerializableString SIZE = new SerializedString("size");
+    private static final SerializableString NEXT_CURSOR = new SerializedString("nextCursor");
+    private static final SerializableString HAS_MORE = new SerializedString("hasMore");
+
+    // 商品
+    private static final SerializableString ID = new SerializedString("id");
+    private static final SerializableString NAME = new SerializedString("name");
+    private static final SerializableString PRICE = new SerializedString("price");
+    private static final SerializableString STOCK = new SerializedString("stock");
+    private static final SerializableString CATEGORY = new SerializedString("category");
+    private static final SerializableString DESCRIPTION = new SerializedString("description");
+    private static final SerializableString IMAGE_URL = new SerializedString("imageUrl");
+    private static final SerializableString STATUS = new SerializedString("status");
+
+    // 购物车
+    private static final SerializableString USER_ID = new SerializedString("userId");
+    private static final SerializableString ITEMS = new SerializedString("items");
+    private static final SerializableString EMPTY = new SerializedString("empty");
+    private static final SerializableString TOTAL_PRICE = new SerializedString("totalPrice");
+    private static final SerializableString TOTAL_ITEM_COUNT = new SerializedString("totalItemCount");
+    private static final SerializableString PRODUCT_ID = new SerializedString("productId");
+    private static final SerializableString PRODUCT_NAME = new SerializedString("productName");
+    private static final SerializableString QUANTITY = new SerializedString("quantity");
+    private static final SerializableString SUBTOTAL = new SerializedString("subtotal");
+
+    // 订单
+    private static final SerializableString ORDER_ID = new SerializedString("orderId");
+    private static final SerializableString TOTAL_AMOUNT = new SerializedString("totalAmount");
+    private static final SerializableString ADDRESS = new SerializedString("address");
+    private static final SerializableString CREATE_TIME = new SerializedString("createTime");
+    private static final SerializableString STATUS_DESCRIPTION = new SerializedString("statusDescription");
+
+    static final String CONTENT_TYPE = MediaType.APPLICATION_JSON_VALUE + ";charset=UTF-8";
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${cartflow.http.pretty-print:false}")
+    private boolean prettyPrint;
+
+    private JsonFactory jsonFactory;
+
+    @PostConstruct
+    public void init() {
+        jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * 输出 data 内容
+     */
+    @FunctionalInterface
+    private interface DataWriter<T> {
+        void write(JsonGenerator generator, T data) throws IOException;
+    }
+
+    public void writeProducts(HttpServletResponse response, ApiResponse<List<Product>> body) throws IOException {
+        writeProducts(prepare(response), body);
+    }
+
+    public void writeProducts(OutputStream out, ApiResponse<List<Product>> body) throws IOException {
+        write(out, body, this::writeProductList);
+    }
+
+    public void writeCart(HttpServletResponse response, ApiResponse<ShoppingCart> body) throws IOException {
+        write(prepare(response), body, this::writeCart);
+    }
+
+    public void writeOrders(HttpServletResponse response, ApiResponse<List<Order>> body) throws IOException {
+        write(prepare(response), body, this::writeOrderList);
+    }
+
+    private OutputStream prepare(HttpServletResponse response) throws IOException {
+        response.setContentType(CONTENT_TYPE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        return response.getOutputStream();
+    }
+
+    /**
+     * 把响应写入输出流，完成后只刷新不关闭输出流
+     */
+    private <T> void write(OutputStream out, ApiResponse<T> body, DataWriter<T> dataWriter) throws IOException {
+        try (JsonGenerator generator = jsonFactory.createGenerator(out, JsonEncoding.UTF8)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            if (prettyPrint) {
+                generator.useDefaultPrettyPrinter();
+            }
+
+            generator.writeStartObject();
+            generator.writeFieldName(SUCCESS);
+            generator.writeBoolean(body.isSuccess());
+            if (body.getMessage() != null) {
+                generator.writeFieldName(MESSAGE);
+                generator.writeString(body.getMessage());
+            }
+            if (body.getData() != null) {
+                generator.writeFieldName(DATA);
+                dataWriter.write(generator, body.getData());
+            }
+            if (body.getTotal() != null) {
+                writeNumberField(generator, TOTAL, body.getTotal());
+                writeNumberField(generator, PAGE, body.getPage());
+                writeNumberField(generator, SIZE, body.getSize());
+            }
+            if (body.getHasMore() != null) {
+                writeStringField(generator, NEXT_CURSOR, body.getNextCursor());
+                generator.writeFieldName(HAS_MORE);
+                generator.writeBoolean(body.getHasMore());
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    private void writeProductList(JsonGenerator generator, List<Product> products) throws IOException {
+        generator.writeStartArray();
+        for (Product product : products) {
+            writeProduct(generator, product);
+        }
+        generator.writeEndArray();
+    }
+
+    private void writeProduct(JsonGenerator generator, Product product) throws IOException {
+        generator.writeStartObject();
+        writeNumberField(generator, ID, product.getId());
+        writeStringField(generator, NAME, product.getName());
+        generator.writeFieldName(PRICE);
+        generator.writeNumber(product.getPrice());
+        writeNumberField(generator, STOCK, product.getStock());
+        writeStringField(generator, CATEGORY, product.getCategory());
+        writeStringField(generator, DESCRIPTION, product.getDescription());
+        writeStringField(generator, IMAGE_URL, product.getImageUrl());
+        writeStringField(generator, STATUS, product.getStatus());
+        generator.writeEndObject();
+    }
+
+    private void writeCart(JsonGenerator generator, ShoppingCart cart) throws IOException {
+        generator.writeStartObject();
+        writeNumberField(generator, USER_ID, cart.getUserId());
+        writeItems(generator, cart.getItems());
+        generator.writeFieldName(EMPTY);
+        generator.writeBoolean(cart.isEmpty());
+        generator.writeFieldName(TOTAL_PRICE);
+        generator.writeNumber(cart.getTotalPrice());
+        writeNumberField(generator, TOTAL_ITEM_COUNT, cart.getTotalItemCount());
+        generator.writeEndObject();
+    }
+
+    private void writeOrderList(JsonGenerator generator, List<Order> orders) throws IOException {
+        generator.writeStartArray();
+        for (Order order : orders) {
+            writeOrder(generator, order);
+        }
+        generator.writeEndArray();
+    }
+
+    private void writeOrder(JsonGenerator generator, Order order) throws IOException {
+        generator.writeStartObject();
+        writeStringField(generator, ORDER_ID, order.getOrderId());
+        writeNumberField(generator, USER_ID, order.getUserId());
+        writeItems(generator, order.getItems());
+        generator.writeFieldName(TOTAL_AMOUNT);
+        generator.writeNumber(order.getTotalAmount());
+        writeStringField(generator, ADDRESS, order.getAddress());
+        writeStringField(generator, STATUS, order.getStatus());
+        writeStringField(generator, CREATE_TIME, order.getCreateTime());
+        writeStringField(generator, STATUS_DESCRIPTION, order.getStatusDescription());
+        generator.writeEndObject();
+    }
+
+    private void writeItems(JsonGenerator generator, List<CartItem> items) throws IOException {
+        generator.writeFieldName(ITEMS);
+        if (items == null) {
+            generator.writeNull();
+            return;
+        }
+
+        generator.writeStartArray();
+        for (CartItem item : items) {
+            generator.writeStartObject();
+            writeNumberField(generator, PRODUCT_ID, item.getProductId());
+            writeStringField(generator, PRODUCT_NAME, item.getProductName());
+            generator.writeFieldName(PRICE);
+            generator.writeNumber(item.getPrice());
+            writeNumberField(generator, QUANTITY, item.getQuantity());
+            generator.writeFieldName(SUBTOTAL);
+            generator.writeNumber(item.getSubtotal());
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+    }
+
+    private static void writeStringField(JsonGenerator generator, SerializableString name, String value)
+            throws IOException {
+        generator.writeFieldName(name);
+        if (value != null) {
+            generator.writeString(value);
+        } else {
+            generator.writeNull();
+        }
+    }
+
+    private static void writeNumberField(JsonGenerator generator, SerializableString name, int value)
+            throws IOException {
+        generator.writeFieldName(name);
+        generator.writeNumber(value);
+    }
+}
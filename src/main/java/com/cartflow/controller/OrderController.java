@@ -2,15 +2,33 @@ package com.cartflow.controller;
 
 import com.cartflow.manager.CartManager;
 import com.cartflow.manager.OrderManager;
+import com.cartflow.model.ApiResponse;
+import com.cartflow.model.CursorPage;
 import com.cartflow.model.Order;
+import com.cartflow.model.OrderFilter;
+import com.cartflow.model.PageResult;
 import com.cartflow.model.ShoppingCart;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.HashMap;
-import java.util.List;
+import java.util.Iterator;
 import java.util.Map;
 
 /**
@@ -22,12 +40,23 @@ import java.util.Map;
 @CrossOrigin(originPatterns = "*", allowCredentials = "true")
 public class OrderController {
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     @Autowired
     private OrderManager orderManager;
 
     @Autowired
     private CartManager cartManager;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JsonResponseWriter responseWriter;
+
     /**
      * 创建订单
      */
@@ -87,26 +116,33 @@ public class OrderController {
     }
 
     /**
-     * 获取用户订单列表
+     * 获取用户订单列表（新订单在前，按游标分页）
+     * 第一页不传cursor，之后传上一页返回的nextCursor，直到hasMore为false
+     * 高频接口，由 JsonResponseWriter 直接流式输出
      */
     @GetMapping
-    public ResponseEntity<Map<String, Object>> getUserOrders(HttpSession session) {
-        Map<String, Object> response = new HashMap<>();
-
+    public void getUserOrders(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+            HttpSession session,
+            HttpServletResponse response) throws IOException {
         Integer userId = (Integer) session.getAttribute("userId");
 
         if (userId == null) {
-            response.put("success", false);
-            response.put("message", "未登录");
-            return ResponseEntity.ok(response);
+            responseWriter.writeOrders(response, ApiResponse.fail("未登录"));
+            return;
         }
 
-        List<Order> orders = orderManager.getUserOrders(userId);
+        int pageSize = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+        CursorPage<Order> page = orderManager.getUserOrders(userId, cursor, pageSize);
 
-        response.put("success", true);
-        response.put("data", orders);
+        if (page == null) {
+            responseWriter.writeOrders(response, ApiResponse.fail("无效的分页游标"));
+            return;
+        }
 
-        return ResponseEntity.ok(response);
+        responseWriter.writeOrders(response, ApiResponse.ok(page.getItems())
+                .cursor(page.getNextCursor(), page.isHasMore()));
     }
 
     /**
@@ -196,10 +232,21 @@ public class OrderController {
     }
 
     /**
-     * 获取所有订单（管理员）
+     * 查询订单（管理员，新订单在前）
+     * 可按 status、userId、下单时间 from/to（[from, to)，yyyy-MM-dd 或 yyyy-MM-dd HH:mm:ss）过滤；
+     * 传cursor时按游标分页（返回nextCursor），否则按page/size分页（返回hasMore，不带时间条件时另返回total）
      */
     @GetMapping("/admin/all")
-    public ResponseEntity<Map<String, Object>> getAllOrders(HttpSession session) {
+    public ResponseEntity<Map<String, Object>> getAllOrders(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) Integer userId,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "1") int page,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size,
+            HttpSession session) {
+
         Map<String, Object> response = new HashMap<>();
 
         String role = (String) session.getAttribute("role");
@@ -210,14 +257,78 @@ public class OrderController {
             return ResponseEntity.ok(response);
         }
 
-        List<Order> orders = orderManager.getAllOrders();
+        OrderFilter filter = toFilter(status, userId, from, to);
+        if (filter == null) {
+            response.put("success", false);
+            response.put("message", "参数错误");
+            return ResponseEntity.ok(response);
+        }
+
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        if (cursor != null) {
+            CursorPage<Order> result = orderManager.findOrders(filter, cursor.isEmpty() ? null : cursor, pageSize);
+            if (result == null) {
+                response.put("success", false);
+                response.put("message", "无效的分页游标");
+                return ResponseEntity.ok(response);
+            }
+            response.put("data", result.getItems());
+            response.put("nextCursor", result.getNextCursor());
+            response.put("hasMore", result.isHasMore());
+        } else {
+            PageResult<Order> result = orderManager.findOrders(filter, Math.max(page, 1), pageSize);
+            response.put("data", result.getItems());
+            if (result.getTotal() != null) {
+                response.put("total", result.getTotal());
+            }
+            response.put("page", result.getPage());
+            response.put("size", result.getSize());
+            response.put("hasMore", result.getHasMore());
+        }
 
         response.put("success", true);
-        response.put("data", orders);
-
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * 导出订单（管理员），NDJSON格式，每行一个订单，按创建顺序
+     * 过滤条件同 /admin/all；订单逐个序列化后直接写入响应流，内存占用与订单数量无关
+     */
+    @GetMapping("/admin/export")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) Integer userId,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            HttpSession session) {
+
+        String role = (String) session.getAttribute("role");
+        if (!"admin".equals(role)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        OrderFilter filter = toFilter(status, userId, from, to);
+        if (filter == null) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        ObjectWriter writer = objectMapper.writerFor(Order.class);
+        StreamingResponseBody body = outputStream -> {
+            OutputStream out = new BufferedOutputStream(outputStream, 64 * 1024);
+            Iterator<Order> orders = orderManager.iterateOrders(filter, null, false);
+            while (orders.hasNext()) {
+                out.write(writer.writeValueAsBytes(orders.next()));
+                out.write('\n');
+            }
+            out.flush();
+        };
+
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"orders.ndjson\"")
+                .body(body);
+    }
+
     /**
      * 更新订单状态（管理员）
      */
@@ -258,6 +369,35 @@ public class OrderController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * 把请求参数转换为查询条件，时间格式不正确时返回null
+     */
+    private static OrderFilter toFilter(String status, Integer userId, String from, String to) {
+        try {
+            return new OrderFilter(blankToNull(status), userId, normalizeTime(from), normalizeTime(to));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 统一为 yyyy-MM-dd HH:mm:ss，与订单的下单时间格式一致
+     */
+    private static String normalizeTime(String value) {
+        String text = blankToNull(value);
+        if (text == null) {
+            return null;
+        }
+        LocalDateTime time = text.length() == 10
+                ? LocalDate.parse(text).atStartOfDay()
+                : LocalDateTime.parse(text, DATE_TIME_FORMAT);
+        return time.format(DATE_TIME_FORMAT);
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.trim().isEmpty() ? null : value.trim();
+    }
+
     /**
      * 获取订单统计（管理员）
      */
@@ -1,11 +1,17 @@
 package com.cartflow.controller;
 
 import com.cartflow.manager.ProductManager;
+import com.cartflow.model.ApiResponse;
+import com.cartflow.model.PageResult;
 import com.cartflow.model.Product;
+import com.cartflow.search.SearchResultCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -19,31 +25,51 @@ import java.util.Map;
 @CrossOrigin(originPatterns = "*", allowCredentials = "true")
 public class ProductController {
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+
     @Autowired
     private ProductManager productManager;
 
+    @Autowired
+    private ProductListingCache listingCache;
+
     /**
      * 获取所有商品
+     * 带search参数时按相关度分页返回搜索结果（page从1开始，size默认20）
+     * 高频接口，响应按查询条件缓存序列化结果，支持 ETag/If-None-Match
      */
     @GetMapping
-    public ResponseEntity<Map<String, Object>> getAllProducts(
+    public void getAllProducts(
             @RequestParam(required = false) String category,
-            @RequestParam(required = false) String search) {
-
-        List<Product> products;
+            @RequestParam(required = false) String search,
+            @RequestParam(defaultValue = "1") int page,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
 
         if (search != null && !search.trim().isEmpty()) {
-            products = productManager.searchProducts(search);
-        } else if (category != null && !category.trim().isEmpty()) {
-            products = productManager.getProductsByCategory(category);
-        } else {
-            products = productManager.getActiveProducts();
+            int pageNumber = Math.max(page, 1);
+            int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+            // 按归一化的查询词缓存，大小写、标点、词序不同的搜索共用一条缓存
+            String key = "search\u0000" + SearchResultCache.normalize(search) + "\u0000" + pageNumber
+                    + "\u0000" + pageSize;
+
+            listingCache.write(key, () -> {
+                PageResult<Product> result = productManager.searchProducts(search, pageNumber, pageSize);
+                return ApiResponse.ok(result.getItems())
+                        .paged(result.getTotal(), result.getPage(), result.getSize());
+            }, request, response);
+            return;
         }
 
-        Map<String, Object> response = new HashMap<>();
-        response.put("success", true);
-        response.put("data", products);
-        return ResponseEntity.ok(response);
+        if (category != null && !category.trim().isEmpty()) {
+            listingCache.write("category\u0000" + category,
+                    () -> ApiResponse.ok(productManager.getProductsByCategory(category)), request, response);
+        } else {
+            listingCache.write("active",
+                    () -> ApiResponse.ok(productManager.getActiveProducts()), request, response);
+        }
     }
 
     /**
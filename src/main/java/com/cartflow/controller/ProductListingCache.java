@@ -0,0 +1,249 @@
+package com.cartflow.controller;
+
+import com.cartflow.manager.ProductManager;
+import com.cartflow.model.ApiResponse;
+import com.cartflow.model.Product;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 商品列表响应缓存
+ * 按查询条件缓存序列化好的响应字节（以及按需生成的gzip版本），每条缓存记录生成时的目录版本号和库存版本号：
+ *   商品信息变更（目录版本号变化）后立即失效；
+ *   只有库存变化时，缓存最多沿用 stock-refresh-ms，到期后由一个请求重新生成，其他请求继续使用旧内容，
+ *   下单高峰时每个查询条件每个周期最多重新序列化一次，列表中的库存最多滞后一个周期（下单时按实时库存扣减）。
+ * 命中时只做一次查表，不再序列化；ETag 由响应内容计算（强校验），If-None-Match 匹配时返回304。
+ * 重新生成的内容与旧缓存相同时（如别的分类库存变化）沿用旧的字节、gzip和ETag。
+ * 条目数有上限，按访问频率淘汰（W-TinyLFU）：大量只访问一次的搜索不会把常用的分类列表挤出缓存。
+ */
+@Component
+public class ProductListingCache {
+
+    private static final String GZIP = "gzip";
+    private static final String CACHE_CONTROL = "no-cache";
+
+    @Autowired
+    private ProductManager productManager;
+
+    @Autowired
+    private JsonResponseWriter responseWriter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${cartflow.product.listing-cache.max-entries:256}")
+    private int maxEntries;
+
+    @Value("${cartflow.product.listing-cache.stock-refresh-ms:1000}")
+    private long stockRefreshMs;
+
+    private Cache<String, Entry> entries;
+
+    private Counter hits;
+    private Counter misses;
+    private Counter notModified;
+
+    @PostConstruct
+    public void init() {
+        entries = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .build();
+        hits = counter("hit");
+        misses = counter("miss");
+        notModified = counter("not_modified");
+    }
+
+    private Counter counter(String result) {
+        return Counter.builder("cartflow.http.listing.cache")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 输出缓存的响应，缓存缺失或过期时先用 body 生成
+     *
+     * @param key  查询条件，相同条件的响应内容必须相同
+     * @param body 生成响应内容，只在缓存缺失或过期时调用
+     */
+    public void write(String key, Supplier<ApiResponse<List<Product>>> body,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Entry entry = lookup(key, body);
+        boolean gzip = acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+
+        response.setHeader(HttpHeaders.ETAG, gzip ? entry.gzipEtag : entry.etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), entry)) {
+            notModified.increment();
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        byte[] bytes = gzip ? entry.gzip() : entry.body;
+        response.setContentType(JsonResponseWriter.CONTENT_TYPE);
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP);
+        }
+        response.setContentLength(bytes.length);
+        response.getOutputStream().write(bytes);
+    }
+
+    /**
+     * 查找可用的缓存，没有则生成
+     * 先读版本号再生成内容，生成期间若有变更，记录的版本号偏旧，之后会再生成一次
+     */
+    private Entry lookup(String key, Supplier<ApiResponse<List<Product>>> body) throws IOException {
+        long version = productManager.getCatalogVersion();
+        long stockVersion = productManager.getStockVersion();
+        long now = System.currentTimeMillis();
+        Entry cached = entries.getIfPresent(key);
+        if (cached != null && cached.version == version) {
+            // 库存没变，或者库存变了但还在沿用期内，或者已有其他请求在重新生成
+            if (cached.stockVersion == stockVersion || now - cached.createdAt < stockRefreshMs
+                    || !cached.startRefresh()) {
+                hits.increment();
+                return cached;
+            }
+        }
+        misses.increment();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8 * 1024);
+        try {
+            responseWriter.writeProducts(out, body.get());
+        } catch (IOException | RuntimeException e) {
+            if (cached != null) {
+                cached.refreshing.set(false);
+            }
+            throw e;
+        }
+        byte[] bytes = out.toByteArray();
+
+        Entry entry = cached != null && Arrays.equals(cached.body, bytes)
+                ? cached.withVersion(version, stockVersion, now)
+                : new Entry(version, stockVersion, now, bytes);
+        store(key, entry);
+        return entry;
+    }
+
+    /**
+     * 存入缓存，并发生成同一个条件时保留版本号较新的一份；超出上限的条目由缓存自行淘汰
+     */
+    private void store(String key, Entry entry) {
+        entries.asMap().merge(key, entry, (existing, added) -> added.isNewerThan(existing) ? added : existing);
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (GZIP.equalsIgnoreCase(parts[0].trim())) {
+                return parts.length < 2 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    /**
+     * If-None-Match 按弱比较匹配，两种编码的 ETag 都算匹配
+     */
+    private static boolean matches(String ifNoneMatch, Entry entry) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(entry.etag) || tag.equals(entry.gzipEtag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 一个查询条件的缓存内容
+     */
+    private static class Entry {
+        final long version;
+        final long stockVersion;
+        final long createdAt;
+        final byte[] body;
+        final String etag;
+        final String gzipEtag;
+        private volatile byte[] gzip;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        Entry(long version, long stockVersion, long createdAt, byte[] body) {
+            this.version = version;
+            this.stockVersion = stockVersion;
+            this.createdAt = createdAt;
+            this.body = body;
+            String digest = DigestUtils.md5DigestAsHex(body);
+            this.etag = "\"" + digest + "\"";
+            this.gzipEtag = "\"" + digest + "-gz\"";
+        }
+
+        private Entry(long version, long stockVersion, long createdAt, Entry source) {
+            this.version = version;
+            this.stockVersion = stockVersion;
+            this.createdAt = createdAt;
+            this.body = source.body;
+            this.etag = source.etag;
+            this.gzipEtag = source.gzipEtag;
+            this.gzip = source.gzip;
+        }
+
+        Entry withVersion(long version, long stockVersion, long createdAt) {
+            return new Entry(version, stockVersion, createdAt, this);
+        }
+
+        /**
+         * 抢占重新生成的资格，只有一个请求能成功
+         */
+        boolean startRefresh() {
+            return refreshing.compareAndSet(false, true);
+        }
+
+        boolean isNewerThan(Entry other) {
+            return version != other.version ? version > other.version : stockVersion >= other.stockVersion;
+        }
+
+        /**
+         * gzip版本在第一次被请求时才压缩，并发压缩只会得到相同的结果，无需加锁
+         */
+        byte[] gzip() throws IOException {
+            byte[] compressed = gzip;
+            if (compressed == null) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4 + 64);
+                try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+                    gzipOut.write(body);
+                }
+                compressed = out.toByteArray();
+                gzip = compressed;
+            }
+            return compressed;
+        }
+    }
+}
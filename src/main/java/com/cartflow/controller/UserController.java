@@ -1,18 +1,25 @@
 package com.cartflow.controller;
 
+import com.cartflow.auth.SessionTokens;
 import com.cartflow.manager.UserManager;
 import com.cartflow.model.User;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * 用户控制器
  * 处理用户相关的HTTP请求
+ * 注册、登录、修改密码需要计算密码哈希，以异步请求处理，等待哈希期间不占用Tomcat线程
  */
 @RestController
 @RequestMapping("/api")
@@ -22,11 +29,14 @@ public class UserController {
     @Autowired
     private UserManager userManager;
 
+    @Autowired
+    private SessionTokens sessionTokens;
+
     /**
      * 用户注册
      */
     @PostMapping("/register")
-    public ResponseEntity<Map<String, Object>> register(@RequestBody Map<String, String> request) {
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> register(@RequestBody Map<String, String> request) {
         Map<String, Object> response = new HashMap<>();
 
         String username = request.get("username");
@@ -37,43 +47,44 @@ public class UserController {
         if (username == null || username.trim().isEmpty()) {
             response.put("success", false);
             response.put("message", "用户名不能为空");
-            return ResponseEntity.ok(response);
+            return CompletableFuture.completedFuture(ResponseEntity.ok(response));
         }
 
         if (password == null || password.length() < 6) {
             response.put("success", false);
             response.put("message", "密码至少6位");
-            return ResponseEntity.ok(response);
+            return CompletableFuture.completedFuture(ResponseEntity.ok(response));
         }
 
         if (email == null || !email.contains("@")) {
             response.put("success", false);
             response.put("message", "邮箱格式不正确");
-            return ResponseEntity.ok(response);
+            return CompletableFuture.completedFuture(ResponseEntity.ok(response));
         }
 
         // 注册用户
-        User user = userManager.register(username, password, email);
-
-        if (user != null) {
-            response.put("success", true);
-            response.put("message", "注册成功");
-            response.put("data", sanitizeUser(user));
-        } else {
-            response.put("success", false);
-            response.put("message", "用户名已存在");
-        }
-
-        return ResponseEntity.ok(response);
+        return userManager.register(username, password, email).thenApply(user -> {
+            if (user != null) {
+                response.put("success", true);
+                response.put("message", "注册成功");
+                response.put("data", sanitizeUser(user));
+            } else {
+                response.put("success", false);
+                response.put("message", "用户名已存在");
+            }
+            return ResponseEntity.ok(response);
+        }).exceptionally(e -> failure(e, "注册失败"));
     }
 
     /**
      * 用户登录
+     * 令牌模式下签发令牌（写入Cookie并在响应的token字段返回），否则写入会话
      */
     @PostMapping("/login")
-    public ResponseEntity<Map<String, Object>> login(
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> login(
             @RequestBody Map<String, String> request,
-            HttpSession session) {
+            HttpSession session,
+            HttpServletResponse servletResponse) {
 
         Map<String, Object> response = new HashMap<>();
 
@@ -83,33 +94,39 @@ public class UserController {
         if (username == null || password == null) {
             response.put("success", false);
             response.put("message", "用户名或密码不能为空");
-            return ResponseEntity.ok(response);
+            return CompletableFuture.completedFuture(ResponseEntity.ok(response));
         }
 
-        User user = userManager.login(username, password);
-
-        if (user != null) {
-            session.setAttribute("userId", user.getId());
-            session.setAttribute("username", user.getUsername());
-            session.setAttribute("role", user.getRole());
-
-            response.put("success", true);
-            response.put("message", "登录成功");
-            response.put("data", sanitizeUser(user));
-        } else {
-            response.put("success", false);
-            response.put("message", "用户名或密码错误");
-        }
-
-        return ResponseEntity.ok(response);
+        return userManager.login(username, password).thenApply(user -> {
+            if (user != null) {
+                if (sessionTokens.isEnabled()) {
+                    response.put("token", sessionTokens.issue(user, servletResponse));
+                } else {
+                    session.setAttribute("userId", user.getId());
+                    session.setAttribute("username", user.getUsername());
+                    session.setAttribute("role", user.getRole());
+                }
+
+                response.put("success", true);
+                response.put("message", "登录成功");
+                response.put("data", sanitizeUser(user));
+            } else {
+                response.put("success", false);
+                response.put("message", "用户名或密码错误");
+            }
+            return ResponseEntity.ok(response);
+        }).exceptionally(e -> failure(e, "登录失败"));
     }
 
     /**
      * 用户登出
      */
     @GetMapping("/logout")
-    public ResponseEntity<Map<String, Object>> logout(HttpSession session) {
+    public ResponseEntity<Map<String, Object>> logout(HttpSession session, HttpServletResponse servletResponse) {
         session.invalidate();
+        if (sessionTokens.isEnabled()) {
+            sessionTokens.clear(servletResponse);
+        }
 
         Map<String, Object> response = new HashMap<>();
         response.put("success", true);
@@ -149,9 +166,10 @@ public class UserController {
      * 修改密码
      */
     @PostMapping("/user/change-password")
-    public ResponseEntity<Map<String, Object>> changePassword(
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> changePassword(
             @RequestBody Map<String, String> request,
-            HttpSession session) {
+            HttpSession session,
+            HttpServletResponse servletResponse) {
 
         Map<String, Object> response = new HashMap<>();
 
@@ -160,7 +178,7 @@ public class UserController {
         if (userId == null) {
             response.put("success", false);
             response.put("message", "未登录");
-            return ResponseEntity.ok(response);
+            return CompletableFuture.completedFuture(ResponseEntity.ok(response));
         }
 
         String oldPassword = request.get("oldPassword");
@@ -169,19 +187,43 @@ public class UserController {
         if (newPassword == null || newPassword.length() < 6) {
             response.put("success", false);
             response.put("message", "新密码至少6位");
-            return ResponseEntity.ok(response);
+            return CompletableFuture.completedFuture(ResponseEntity.ok(response));
         }
 
-        boolean result = userManager.changePassword(userId, oldPassword, newPassword);
+        return userManager.changePassword(userId, oldPassword, newPassword).thenApply(result -> {
+            if (result) {
+                // 修改密码会作废已签发的令牌，为当前客户端换发新令牌
+                if (sessionTokens.isEnabled()) {
+                    response.put("token", sessionTokens.issue(userManager.getUserById(userId), servletResponse));
+                }
+                response.put("success", true);
+                response.put("message", "密码修改成功");
+            } else {
+                response.put("success", false);
+                response.put("message", "原密码错误");
+            }
+            return ResponseEntity.ok(response);
+        }).exceptionally(e -> failure(e, "密码修改失败"));
+    }
 
-        if (result) {
-            response.put("success", true);
-            response.put("message", "密码修改成功");
-        } else {
-            response.put("success", false);
-            response.put("message", "原密码错误");
+    /**
+     * 异步处理失败时的响应
+     * 密码哈希线程池已满时返回503，其他错误（如保存失败）按普通失败返回 message
+     */
+    private static ResponseEntity<Map<String, Object>> failure(Throwable e, String message) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+
+        if (cause instanceof RejectedExecutionException) {
+            System.err.println("Password hashing queue full: " + cause.getMessage());
+            response.put("message", "系统繁忙，请稍后再试");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
         }
 
+        System.err.println(message + ": " + cause.getMessage());
+        cause.printStackTrace();
+        response.put("message", message);
         return ResponseEntity.ok(response);
     }
 
@@ -3,54 +3,75 @@ package com.cartflow.manager;
 import com.cartflow.model.CartItem;
 import com.cartflow.model.Product;
 import com.cartflow.model.ShoppingCart;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 /**
  * 购物车管理类
  * 负责购物车的增删改查
+ *
+ * 购物车按用户ID存放在并发Map中，写操作按用户ID分段加锁（lock striping）：
+ * 不同用户的购物车操作可以并行，只有落在同一个锁段上的操作才会互相等待。
+ * Map中的购物车发布后不再修改，每次变更都复制出新对象再替换，
+ * 因此读取、序列化和持久化快照都不需要加锁。
  */
 @Component
 public class CartManager {
 
+    private static final int LOCK_STRIPES = 256;
+
     @Autowired
     private DataManager dataManager;
 
     @Autowired
     private ProductManager productManager;
 
-    private List<ShoppingCart> carts;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private volatile Map<Integer, ShoppingCart> carts = new ConcurrentHashMap<>();
+
+    private final MonitorLock[] locks = new MonitorLock[LOCK_STRIPES];
+
+    public CartManager() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new MonitorLock("cart");
+        }
+    }
 
     @PostConstruct
     public void init() {
-        this.carts = dataManager.loadCarts();
-        if (this.carts == null) {
-            this.carts = new ArrayList<>();
+        for (MonitorLock lock : locks) {
+            lock.bind(meterRegistry);
         }
+        Gauge.builder("cartflow.entities", this, m -> m.carts.size())
+                .tag("entity", "cart")
+                .register(meterRegistry);
+
+        this.carts = toCartMap(dataManager.loadCarts());
+        dataManager.registerCartSource(this::snapshot);
     }
 
     /**
-     * 获取用户的购物车
+     * 获取用户的购物车，不存在时原子地创建
      */
     public ShoppingCart getUserCart(int userId) {
-        return carts.stream()
-                .filter(c -> c.getUserId() == userId)
-                .findFirst()
-                .orElseGet(() -> {
-                    ShoppingCart newCart = new ShoppingCart(userId);
-                    carts.add(newCart);
-                    return newCart;
-                });
+        return carts.computeIfAbsent(userId, ShoppingCart::new);
     }
 
     /**
      * 添加商品到购物车
      */
-    public synchronized boolean addToCart(int userId, int productId, int quantity) {
+    public boolean addToCart(int userId, int productId, int quantity) {
         try {
             // 检查商品是否存在
             Product product = productManager.getProductById(productId);
@@ -65,9 +86,6 @@ public class CartManager {
                 return false;
             }
 
-            // 获取或创建购物车
-            ShoppingCart cart = getUserCart(userId);
-
             // 创建购物车项
             CartItem newItem = new CartItem(
                     product.getId(),
@@ -76,8 +94,7 @@ public class CartManager {
                     quantity
             );
 
-            cart.addItem(newItem);
-            dataManager.saveCarts(carts);
+            updateCart(userId, cart -> cart.addItem(newItem));
             return true;
         } catch (Exception e) {
             System.err.println("Failed to add to cart: " + e.getMessage());
@@ -89,22 +106,21 @@ public class CartManager {
     /**
      * 更新购物车商品数量
      */
-    public synchronized boolean updateCartItem(int userId, int productId, int quantity) {
+    public boolean updateCartItem(int userId, int productId, int quantity) {
         try {
-            ShoppingCart cart = getUserCart(userId);
-
-            if (quantity <= 0) {
-                cart.removeItem(productId);
-            } else {
+            if (quantity > 0 && !productManager.checkStock(productId, quantity)) {
                 // 检查库存
-                if (!productManager.checkStock(productId, quantity)) {
-                    System.err.println("Insufficient stock for product: " + productId);
-                    return false;
-                }
-                cart.updateQuantity(productId, quantity);
+                System.err.println("Insufficient stock for product: " + productId);
+                return false;
             }
 
-            dataManager.saveCarts(carts);
+            updateCart(userId, cart -> {
+                if (quantity <= 0) {
+                    cart.removeItem(productId);
+                } else {
+                    cart.updateQuantity(productId, quantity);
+                }
+            });
             return true;
         } catch (Exception e) {
             System.err.println("Failed to update cart item: " + e.getMessage());
@@ -115,11 +131,9 @@ public class CartManager {
     /**
      * 从购物车删除商品
      */
-    public synchronized boolean removeFromCart(int userId, int productId) {
+    public boolean removeFromCart(int userId, int productId) {
         try {
-            ShoppingCart cart = getUserCart(userId);
-            cart.removeItem(productId);
-            dataManager.saveCarts(carts);
+            updateCart(userId, cart -> cart.removeItem(productId));
             return true;
         } catch (Exception e) {
             System.err.println("Failed to remove from cart: " + e.getMessage());
@@ -130,11 +144,9 @@ public class CartManager {
     /**
      * 清空购物车
      */
-    public synchronized boolean clearCart(int userId) {
+    public boolean clearCart(int userId) {
         try {
-            ShoppingCart cart = getUserCart(userId);
-            cart.clear();
-            dataManager.saveCarts(carts);
+            updateCart(userId, ShoppingCart::clear);
             return true;
         } catch (Exception e) {
             System.err.println("Failed to clear cart: " + e.getMessage());
@@ -158,17 +170,63 @@ public class CartManager {
     /**
      * 保存所有购物车
      */
-    public synchronized void saveAll() {
-        dataManager.saveCarts(carts);
+    public void saveAll() {
+        dataManager.saveCarts(snapshot());
+    }
+
+    /**
+     * 在用户的锁段内复制购物车、应用修改、替换并持久化
+     * 持久化也在锁内进行，保证同一购物车的日志记录顺序与内存中的变更顺序一致
+     */
+    private ShoppingCart updateCart(int userId, Consumer<ShoppingCart> mutation) {
+        MonitorLock lock = lockFor(userId);
+        lock.lock();
+        try {
+            ShoppingCart current = carts.get(userId);
+            ShoppingCart updated = current != null ? copyOf(current) : new ShoppingCart(userId);
+            mutation.accept(updated);
+            carts.put(userId, updated);
+            dataManager.saveCart(updated);
+            return updated;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private MonitorLock lockFor(int userId) {
+        int hash = userId * 0x9E3779B9;
+        return locks[(hash ^ (hash >>> 16)) & (LOCK_STRIPES - 1)];
+    }
+
+    /**
+     * 购物车列表快照（供持久化使用），Map中的购物车不会被修改，无需加锁
+     */
+    private List<ShoppingCart> snapshot() {
+        return new ArrayList<>(carts.values());
+    }
+
+    private static ShoppingCart copyOf(ShoppingCart cart) {
+        List<CartItem> items = new ArrayList<>(cart.getItems().size());
+        for (CartItem item : cart.getItems()) {
+            items.add(new CartItem(item.getProductId(), item.getProductName(), item.getPrice(), item.getQuantity()));
+        }
+        return new ShoppingCart(cart.getUserId(), items);
+    }
+
+    private static Map<Integer, ShoppingCart> toCartMap(List<ShoppingCart> loaded) {
+        Map<Integer, ShoppingCart> cartMap = new ConcurrentHashMap<>();
+        if (loaded != null) {
+            for (ShoppingCart cart : loaded) {
+                cartMap.put(cart.getUserId(), cart);
+            }
+        }
+        return cartMap;
     }
 
     /**
      * 刷新购物车列表
      */
     public void refresh() {
-        this.carts = dataManager.loadCarts();
-        if (this.carts == null) {
-            this.carts = new ArrayList<>();
-        }
+        this.carts = toCartMap(dataManager.loadCarts());
     }
 }
@@ -1,142 +1,439 @@
 package com.cartflow.manager;
 
 import com.cartflow.model.*;
+import com.cartflow.storage.Durability;
+import com.cartflow.storage.EntityStore;
+import com.cartflow.storage.JsonFileEngine;
+import com.cartflow.storage.MvStoreEngine;
+import com.cartflow.storage.SnapshotFormat;
+import com.cartflow.storage.StorageEngine;
+import com.cartflow.storage.StorageSettings;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.reflect.TypeToken;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.io.*;
-import java.lang.reflect.Type;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * 数据持久化管理类
- * 负责JSON文件的读写操作
+ * 各管理类通过它读写实体，实际的存储由可插拔的存储引擎完成（cartflow.data.engine）：
+ *   json    - 每个实体一个快照文件（JsonFileEngine），快照格式由 cartflow.data.snapshot-format 选择：
+ *             json 为可手工编辑的JSON，binary 为内存映射、按需解码的二进制格式，启动更快
+ *   mvstore - 嵌入式键值存储，单条变更只写一条记录（MvStoreEngine）
+ * 数据目录由 cartflow.data.dir 指定，目录中还没有数据时从classpath中的 data/*.json 复制初始数据。
+ *
+ * 持久化模式（cartflow.data.durability）:
+ *   sync         - 每次变更写入后才返回
+ *   journal      - 每次变更追加一条增量记录，分组刷盘（mvstore 为定时提交）
+ *   write-behind - 变更先留在内存，后台按间隔合并写出
+ *
+ * 指标（按 store 标签区分实体）：加载耗时 cartflow.data.load、写入耗时 cartflow.data.write，
+ * 以及引擎数据文件的大小 cartflow.data.file.size。
  */
 @Component
 public class DataManager {
-    private static final String DATA_DIR = "src/main/resources/data/";
-    private static final String PRODUCTS_FILE = DATA_DIR + "products.json";
-    private static final String USERS_FILE = DATA_DIR + "users.json";
-    private static final String CARTS_FILE = DATA_DIR + "carts.json";
-    private static final String ORDERS_FILE = DATA_DIR + "orders.json";
+    private static final String ENGINE_JSON = "json";
+    private static final String ENGINE_MVSTORE = "mvstore";
+    private static final String SEED_DIR = "data/";
+    private static final String[] SEED_ENTITIES = {"products", "users", "carts", "orders"};
 
-    private final Gson gson;
+    private final Gson gson = new Gson();
 
-    public DataManager() {
-        this.gson = new GsonBuilder().setPrettyPrinting().create();
-        initializeDataDirectory();
-    }
+    private final DataSet<Product> productSet = new DataSet<>("products", Product.class, p -> String.valueOf(p.getId()));
+    private final DataSet<User> userSet = new DataSet<>("users", User.class, u -> String.valueOf(u.getId()));
+    private final DataSet<ShoppingCart> cartSet = new DataSet<>("carts", ShoppingCart.class, c -> String.valueOf(c.getUserId()));
+    private final DataSet<Order> orderSet = new DataSet<>("orders", Order.class, Order::getOrderId);
+    private final DataSet<IdSequence> sequenceSet = new DataSet<>("sequences", IdSequence.class, IdSequence::getName);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${cartflow.data.dir:src/main/resources/data}")
+    private String dataDir;
+
+    @Value("${cartflow.data.engine:json}")
+    private String engineSetting;
+
+    @Value("${cartflow.data.snapshot-format:json}")
+    private String snapshotFormatSetting;
+
+    @Value("${cartflow.data.durability:journal}")
+    private String durabilitySetting;
+
+    @Value("${cartflow.data.journal.sync-interval-ms:50}")
+    private long journalSyncIntervalMs;
+
+    @Value("${cartflow.data.journal.compact-threshold:1000}")
+    private int journalCompactThreshold;
+
+    @Value("${cartflow.data.write-behind.flush-interval-ms:1000}")
+    private long writeBehindFlushIntervalMs;
+
+    @Value("${cartflow.data.write-behind.max-pending-changes:500}")
+    private int writeBehindMaxPendingChanges;
+
+    @Value("${cartflow.data.pretty-print:false}")
+    private boolean prettyPrint;
+
+    private Durability durability = Durability.JOURNAL;
+
+    private SnapshotFormat snapshotFormat = SnapshotFormat.JSON;
+
+    private StorageEngine engine;
 
     /**
-     * 初始化数据目录
+     * 创建数据目录和存储引擎，打开各实体的存储
+     * ID号段上限必须先落盘再发号，始终以 sync 级别打开
      */
-    private void initializeDataDirectory() {
+    @PostConstruct
+    public void init() {
+        durability = Durability.parse(durabilitySetting);
+        snapshotFormat = SnapshotFormat.parse(snapshotFormatSetting);
+
+        StorageSettings settings = new StorageSettings();
+        settings.setDataDir(Paths.get(dataDir));
+        settings.setDurability(durability);
+        settings.setJournalSyncIntervalMs(journalSyncIntervalMs);
+        settings.setJournalCompactThreshold(journalCompactThreshold);
+        settings.setWriteBehindFlushIntervalMs(writeBehindFlushIntervalMs);
+        settings.setWriteBehindMaxPendingChanges(writeBehindMaxPendingChanges);
+        settings.setPrettyPrint(prettyPrint);
+        settings.setSnapshotFormat(snapshotFormat);
+
         try {
-            Files.createDirectories(Paths.get(DATA_DIR));
+            initializeDataDirectory(settings.getDataDir());
+            engine = createEngine(settings);
+            for (DataSet<?> dataSet : dataSets()) {
+                open(dataSet, dataSet == sequenceSet ? Durability.SYNC : durability);
+            }
         } catch (IOException e) {
-            System.err.println("Failed to create data directory: " + e.getMessage());
+            System.err.println("Failed to open data store in " + dataDir + ": " + e.getMessage());
+            throw new IllegalStateException("Failed to open data store in " + dataDir, e);
+        }
+
+        for (Path file : engine.files()) {
+            Gauge.builder("cartflow.data.file.size", file, f -> f.toFile().length())
+                    .description("Size of a data file")
+                    .tag("file", file.getFileName().toString())
+                    .baseUnit("bytes")
+                    .strongReference(true)
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * 关闭时写出所有未持久化的变更
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (engine != null) {
+            engine.close();
+        }
+    }
+
+    private StorageEngine createEngine(StorageSettings settings) throws IOException {
+        String name = engineSetting == null ? ENGINE_JSON : engineSetting.trim().toLowerCase();
+        if (ENGINE_MVSTORE.equals(name)) {
+            return new MvStoreEngine(settings, gson);
+        }
+        if (!ENGINE_JSON.equals(name)) {
+            System.err.println("Unknown storage engine '" + engineSetting + "', using json");
+        }
+        return new JsonFileEngine(settings, gson, meterRegistry);
+    }
+
+    /**
+     * 初始化数据目录：目录中还没有任何数据文件时，从classpath复制初始数据
+     * （打包运行时 src/main/resources/data 并不存在）
+     */
+    private void initializeDataDirectory(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        if (Files.exists(dir.resolve(MvStoreEngine.STORE_FILE))) {
+            return;
         }
+        for (String entity : SEED_ENTITIES) {
+            for (SnapshotFormat format : SnapshotFormat.values()) {
+                if (Files.exists(dir.resolve(entity + format.getSuffix()))) {
+                    return;
+                }
+            }
+        }
+
+        for (String entity : SEED_ENTITIES) {
+            String seedFile = entity + SnapshotFormat.JSON.getSuffix();
+            try (InputStream in = getClass().getClassLoader().getResourceAsStream(SEED_DIR + seedFile)) {
+                if (in != null) {
+                    Files.copy(in, dir.resolve(seedFile));
+                }
+            }
+        }
+    }
+
+    private <T> void open(DataSet<T> dataSet, Durability level) throws IOException {
+        dataSet.store = engine.open(dataSet.name, dataSet.type, dataSet.keyExtractor, level);
+        dataSet.loadTimer = Timer.builder("cartflow.data.load")
+                .description("Time to load all records of an entity")
+                .tag("store", dataSet.name)
+                .register(meterRegistry);
+        dataSet.writeTimer = Timer.builder("cartflow.data.write")
+                .description("Time to persist a change to an entity")
+                .tag("store", dataSet.name)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * 当前的持久化级别
+     */
+    public Durability getDurability() {
+        return durability;
     }
 
     /**
      * 保存商品列表
      */
-    public synchronized void saveProducts(List<Product> products) {
-        saveToFile(PRODUCTS_FILE, products);
+    public void saveProducts(List<Product> products) {
+        writeSnapshot(productSet, products);
     }
 
     /**
      * 加载商品列表
      */
     public List<Product> loadProducts() {
-        Type listType = new TypeToken<List<Product>>(){}.getType();
-        List<Product> products = loadFromFile(PRODUCTS_FILE, listType);
-        return products != null ? products : new ArrayList<>();
+        return load(productSet);
+    }
+
+    /**
+     * 注册商品快照来源，用于整文件重写和日志压缩
+     */
+    public void registerProductSource(Supplier<List<Product>> source) {
+        productSet.store.bindSource(source);
+    }
+
+    /**
+     * 保存单个商品的变更
+     */
+    public void saveProduct(Product product) {
+        saveRecord(productSet, product);
+    }
+
+    /**
+     * 一次性保存多个商品的变更（只产生一次写入）
+     */
+    public void saveProductBatch(List<Product> products) {
+        saveRecords(productSet, products);
+    }
+
+    /**
+     * 记录商品的物理删除
+     */
+    public void removeProduct(int productId) {
+        removeRecord(productSet, String.valueOf(productId));
     }
 
     /**
      * 保存用户列表
      */
-    public synchronized void saveUsers(List<User> users) {
-        saveToFile(USERS_FILE, users);
+    public void saveUsers(List<User> users) {
+        writeSnapshot(userSet, users);
     }
 
     /**
      * 加载用户列表
      */
     public List<User> loadUsers() {
-        Type listType = new TypeToken<List<User>>(){}.getType();
-        List<User> users = loadFromFile(USERS_FILE, listType);
-        return users != null ? users : new ArrayList<>();
+        return load(userSet);
+    }
+
+    /**
+     * 注册用户快照来源
+     */
+    public void registerUserSource(Supplier<List<User>> source) {
+        userSet.store.bindSource(source);
+    }
+
+    /**
+     * 保存单个用户的变更
+     */
+    public void saveUser(User user) {
+        saveRecord(userSet, user);
+    }
+
+    /**
+     * 记录用户的删除
+     */
+    public void removeUser(int userId) {
+        removeRecord(userSet, String.valueOf(userId));
     }
 
     /**
      * 保存购物车列表
      */
-    public synchronized void saveCarts(List<ShoppingCart> carts) {
-        saveToFile(CARTS_FILE, carts);
+    public void saveCarts(List<ShoppingCart> carts) {
+        writeSnapshot(cartSet, carts);
     }
 
     /**
      * 加载购物车列表
      */
     public List<ShoppingCart> loadCarts() {
-        Type listType = new TypeToken<List<ShoppingCart>>(){}.getType();
-        List<ShoppingCart> carts = loadFromFile(CARTS_FILE, listType);
-        return carts != null ? carts : new ArrayList<>();
+        return load(cartSet);
+    }
+
+    /**
+     * 注册购物车快照来源
+     */
+    public void registerCartSource(Supplier<List<ShoppingCart>> source) {
+        cartSet.store.bindSource(source);
+    }
+
+    /**
+     * 保存单个购物车的变更
+     */
+    public void saveCart(ShoppingCart cart) {
+        saveRecord(cartSet, cart);
     }
 
     /**
      * 保存订单列表
      */
-    public synchronized void saveOrders(List<Order> orders) {
-        saveToFile(ORDERS_FILE, orders);
+    public void saveOrders(List<Order> orders) {
+        writeSnapshot(orderSet, orders);
     }
 
     /**
      * 加载订单列表
      */
     public List<Order> loadOrders() {
-        Type listType = new TypeToken<List<Order>>(){}.getType();
-        List<Order> orders = loadFromFile(ORDERS_FILE, listType);
-        return orders != null ? orders : new ArrayList<>();
+        return load(orderSet);
+    }
+
+    /**
+     * 注册订单快照来源
+     */
+    public void registerOrderSource(Supplier<List<Order>> source) {
+        orderSet.store.bindSource(source);
+    }
+
+    /**
+     * 保存单个订单的变更
+     */
+    public void saveOrder(Order order) {
+        saveRecord(orderSet, order);
+    }
+
+    /**
+     * 记录订单的删除
+     */
+    public void removeOrder(String orderId) {
+        removeRecord(orderSet, orderId);
+    }
+
+    /**
+     * 加载ID序列的号段上限
+     */
+    public List<IdSequence> loadIdSequences() {
+        return load(sequenceSet);
+    }
+
+    /**
+     * 保存ID序列的号段上限（刷盘后才返回）
+     */
+    public boolean saveIdSequences(List<IdSequence> sequences) {
+        return writeSnapshot(sequenceSet, sequences);
     }
 
     /**
-     * 通用保存方法
+     * 读取实体的全部记录
+     * 数据存在却无法读取时拒绝启动，避免以空数据继续运行并在下次保存时覆盖掉原有数据
      */
-    private <T> void saveToFile(String filename, T data) {
-        try (FileWriter writer = new FileWriter(filename)) {
-            gson.toJson(data, writer);
+    private <T> List<T> load(DataSet<T> dataSet) {
+        Timer.Sample sample = Timer.start();
+        try {
+            return dataSet.store.scan();
         } catch (IOException e) {
-            System.err.println("Failed to save data to " + filename + ": " + e.getMessage());
-            e.printStackTrace();
+            System.err.println("Failed to load data from " + dataSet.name + ": " + e.getMessage());
+            throw new IllegalStateException("No usable snapshot for " + dataSet.name, e);
+        } finally {
+            sample.stop(dataSet.loadTimer);
         }
     }
 
     /**
-     * 通用加载方法
+     * 持久化单条记录，落盘时机由持久化级别和存储引擎决定
      */
-    private <T> T loadFromFile(String filename, Type type) {
-        File file = new File(filename);
-        if (!file.exists()) {
-            return null;
+    private <T> void saveRecord(DataSet<T> dataSet, T value) {
+        Timer.Sample sample = Timer.start();
+        try {
+            dataSet.store.put(value);
+        } catch (IOException e) {
+            System.err.println("Failed to save data to " + dataSet.name + ": " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            sample.stop(dataSet.writeTimer);
+        }
+    }
+
+    private <T> void saveRecords(DataSet<T> dataSet, List<T> values) {
+        Timer.Sample sample = Timer.start();
+        try {
+            dataSet.store.putAll(values);
+        } catch (IOException e) {
+            System.err.println("Failed to save data to " + dataSet.name + ": " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            sample.stop(dataSet.writeTimer);
+        }
+    }
+
+    private <T> void removeRecord(DataSet<T> dataSet, String key) {
+        Timer.Sample sample = Timer.start();
+        try {
+            dataSet.store.delete(key);
+        } catch (IOException e) {
+            System.err.println("Failed to delete data from " + dataSet.name + ": " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            sample.stop(dataSet.writeTimer);
         }
+    }
 
-        try (FileReader reader = new FileReader(filename)) {
-            return gson.fromJson(reader, type);
+    /**
+     * 用给定的列表整体替换实体的全部数据，写入失败时原数据保持不变
+     */
+    private <T> boolean writeSnapshot(DataSet<T> dataSet, List<T> items) {
+        Timer.Sample sample = Timer.start();
+        try {
+            dataSet.store.replaceAll(items);
+            return true;
         } catch (IOException e) {
-            System.err.println("Failed to load data from " + filename + ": " + e.getMessage());
+            System.err.println("Failed to save data to " + dataSet.name + ": " + e.getMessage());
             e.printStackTrace();
-            return null;
+            return false;
+        } finally {
+            sample.stop(dataSet.writeTimer);
         }
     }
 
+    private List<DataSet<?>> dataSets() {
+        return Arrays.asList(productSet, userSet, cartSet, orderSet, sequenceSet);
+    }
+
     /**
      * 检查文件是否存在
      */
@@ -145,21 +442,43 @@ public class DataManager {
     }
 
     /**
-     * 获取数据文件路径
+     * 获取数据文件路径（json 引擎下各实体的快照文件）
      */
     public String getProductsFilePath() {
-        return PRODUCTS_FILE;
+        return entityFile(productSet);
     }
 
     public String getUsersFilePath() {
-        return USERS_FILE;
+        return entityFile(userSet);
     }
 
     public String getCartsFilePath() {
-        return CARTS_FILE;
+        return entityFile(cartSet);
     }
 
     public String getOrdersFilePath() {
-        return ORDERS_FILE;
+        return entityFile(orderSet);
+    }
+
+    private String entityFile(DataSet<?> dataSet) {
+        return Paths.get(dataDir, dataSet.name + snapshotFormat.getSuffix()).toString();
+    }
+
+    /**
+     * 单个实体的描述：实体名、类型、主键、打开后的存储和计时器
+     */
+    private static class DataSet<T> {
+        private final String name;
+        private final Class<T> type;
+        private final Function<T, String> keyExtractor;
+        private EntityStore<T> store;
+        private Timer loadTimer;
+        private Timer writeTimer;
+
+        DataSet(String name, Class<T> type, Function<T, String> keyExtractor) {
+            this.name = name;
+            this.type = type;
+            this.keyExtractor = keyExtractor;
+        }
     }
 }
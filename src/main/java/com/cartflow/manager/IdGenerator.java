@@ -0,0 +1,154 @@
+package com.cartflow.manager;
+
+import com.cartflow.model.IdSequence;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ID生成器（号段分配）
+ * 每个序列在内存中用原子计数器无锁发号；计数器越过当前号段上限时才加锁预留下一个号段，
+ * 并先把新上限刷盘（sequences.json）再发出号段内的ID。重启后从已持久化的上限之后继续，
+ * 上一个号段中未用完的ID直接跳过，因此ID跨重启也不会重复。
+ */
+@Component
+public class IdGenerator {
+
+    public static final String PRODUCT = "product";
+    public static final String USER = "user";
+    public static final String ORDER = "order";
+
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+    private static final int MIN_SEQUENCE_DIGITS = 6;
+
+    @Autowired
+    private DataManager dataManager;
+
+    @Value("${cartflow.id.block-size:1000}")
+    private int blockSize;
+
+    private final Map<String, Sequence> sequences = new ConcurrentHashMap<>();
+
+    private volatile TimestampPrefix timestampPrefix = new TimestampPrefix(-1, "");
+
+    @PostConstruct
+    public void init() {
+        for (IdSequence stored : dataManager.loadIdSequences()) {
+            sequences.put(stored.getName(), new Sequence(stored.getLimit()));
+        }
+    }
+
+    /**
+     * 取序列的下一个ID
+     */
+    public long next(String name) {
+        Sequence sequence = sequence(name);
+        long id = sequence.counter.incrementAndGet();
+        if (id > sequence.limit) {
+            reserve(sequence, id);
+        }
+        return id;
+    }
+
+    /**
+     * 取序列的下一个int类型ID（商品、用户）
+     */
+    public int nextInt(String name) {
+        return Math.toIntExact(next(name));
+    }
+
+    /**
+     * 取带时间前缀的ID：yyyyMMddHHmmss + 至少6位序号（订单号）
+     * 唯一性由序号保证，时间前缀只为便于阅读；前缀每秒只格式化一次
+     */
+    public String nextTimestamped(String name) {
+        long id = next(name);
+        String prefix = currentTimestampPrefix();
+        String digits = Long.toString(id);
+
+        StringBuilder sb = new StringBuilder(prefix.length() + Math.max(digits.length(), MIN_SEQUENCE_DIGITS));
+        sb.append(prefix);
+        for (int i = digits.length(); i < MIN_SEQUENCE_DIGITS; i++) {
+            sb.append('0');
+        }
+        return sb.append(digits).toString();
+    }
+
+    /**
+     * 保证序列之后发出的ID都大于minimum（用已有数据中的最大ID初始化序列）
+     */
+    public void advanceTo(String name, long minimum) {
+        Sequence sequence = sequence(name);
+        long current = sequence.counter.accumulateAndGet(minimum, Math::max);
+        if (current > sequence.limit) {
+            reserve(sequence, current);
+        }
+    }
+
+    private Sequence sequence(String name) {
+        return sequences.computeIfAbsent(name, n -> new Sequence(0));
+    }
+
+    /**
+     * 预留覆盖id的号段，新上限持久化成功后才生效；持久化失败时不能保证唯一性，直接报错
+     */
+    private synchronized void reserve(Sequence sequence, long id) {
+        if (id <= sequence.limit) {
+            return;
+        }
+
+        long newLimit = sequence.limit;
+        while (newLimit < id) {
+            newLimit += blockSize;
+        }
+
+        List<IdSequence> state = new ArrayList<>();
+        for (Map.Entry<String, Sequence> entry : sequences.entrySet()) {
+            long limit = entry.getValue() == sequence ? newLimit : entry.getValue().limit;
+            state.add(new IdSequence(entry.getKey(), limit));
+        }
+        if (!dataManager.saveIdSequences(state)) {
+            throw new IllegalStateException("Failed to persist id sequences");
+        }
+        sequence.limit = newLimit;
+    }
+
+    private String currentTimestampPrefix() {
+        long second = System.currentTimeMillis() / 1000;
+        TimestampPrefix prefix = timestampPrefix;
+        if (prefix.second != second) {
+            prefix = new TimestampPrefix(second, LocalDateTime.now().format(TIMESTAMP_FORMAT));
+            timestampPrefix = prefix;
+        }
+        return prefix.text;
+    }
+
+    private static class Sequence {
+        private final AtomicLong counter;
+        private volatile long limit;
+
+        Sequence(long limit) {
+            this.counter = new AtomicLong(limit);
+            this.limit = limit;
+        }
+    }
+
+    private static class TimestampPrefix {
+        private final long second;
+        private final String text;
+
+        TimestampPrefix(long second, String text) {
+            this.second = second;
+            this.text = text;
+        }
+    }
+}
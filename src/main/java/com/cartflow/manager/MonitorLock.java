@@ -0,0 +1,47 @@
+package com.cartflow.manager;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 管理类的实例锁（可重入），代替 synchronized 监视器
+ * 每次加锁记录等待时间（cartflow.lock.wait，monitor 标签为锁名），用于观察各管理类的锁竞争；
+ * 绑定指标注册表之前只加锁不计时。
+ */
+final class MonitorLock {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final String name;
+    private volatile Timer waitTimer;
+
+    MonitorLock(String name) {
+        this.name = name;
+    }
+
+    /**
+     * 注册等待计时器；同名的锁（如分段锁的各段）共用一个计时器
+     */
+    void bind(MeterRegistry registry) {
+        waitTimer = Timer.builder("cartflow.lock.wait")
+                .description("Time spent waiting to acquire a manager lock")
+                .tag("monitor", name)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    void lock() {
+        long start = System.nanoTime();
+        lock.lock();
+        Timer timer = waitTimer;
+        if (timer != null) {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    void unlock() {
+        lock.unlock();
+    }
+}
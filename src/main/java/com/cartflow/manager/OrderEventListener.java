@@ -0,0 +1,37 @@
+package com.cartflow.manager;
+
+import com.cartflow.model.Order;
+
+import java.util.Collection;
+
+/**
+ * 订单事件监听器
+ * 实现为Spring Bean即会被OrderManager自动注册；回调在OrderManager的锁内按变更顺序同步调用，
+ * 实现应当尽快返回，且不能再调用OrderManager的写方法。
+ */
+public interface OrderEventListener {
+
+    /**
+     * 订单列表整体加载（启动或刷新），之前的状态应全部丢弃
+     */
+    default void ordersReloaded(Collection<Order> orders) {
+    }
+
+    /**
+     * 新订单创建
+     */
+    default void orderCreated(Order order) {
+    }
+
+    /**
+     * 订单状态变更（包括取消），order已经是新状态
+     */
+    default void orderStatusChanged(Order order, String oldStatus) {
+    }
+
+    /**
+     * 订单被删除
+     */
+    default void orderDeleted(Order order) {
+    }
+}
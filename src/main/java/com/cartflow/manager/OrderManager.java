@@ -1,45 +1,84 @@
 package com.cartflow.manager;
 
+import com.cartflow.model.CursorPage;
 import com.cartflow.model.Order;
+import com.cartflow.model.OrderFilter;
+import com.cartflow.model.PageResult;
+import com.cartflow.model.Product;
 import com.cartflow.model.ShoppingCart;
 import com.cartflow.model.CartItem;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
 
 /**
  * 订单管理类
  * 负责订单的创建、查询和管理
+ *
+ * 订单按订单号建哈希索引，并按（下单时间, 序号）排序维护全部订单、每个用户和每种状态的有序索引，
+ * 查询订单详情是O(1)，按用户、状态、时间区间查询只遍历命中的订单且无需排序。
+ * 订单统计随订单变更增量维护，查询统计不遍历订单。
+ * 订单变更同时通知所有OrderEventListener（如销售分析）。
  */
 @Component
 public class OrderManager {
 
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
     @Autowired
     private DataManager dataManager;
 
     @Autowired
     private ProductManager productManager;
 
-    private List<Order> orders;
+    @Autowired
+    private IdGenerator idGenerator;
+
+    @Autowired(required = false)
+    private List<OrderEventListener> listeners = new ArrayList<>();
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final MonitorLock monitor = new MonitorLock("order");
+
+    private volatile OrderIndexes indexes = new OrderIndexes();
+
+    private volatile OrderStatisticsAggregator statistics = newStatistics();
 
     @PostConstruct
     public void init() {
-        this.orders = dataManager.loadOrders();
-        if (this.orders == null) {
-            this.orders = new ArrayList<>();
-        }
+        monitor.bind(meterRegistry);
+        Gauge.builder("cartflow.entities", this, m -> m.indexes.byId.size())
+                .tag("entity", "order")
+                .register(meterRegistry);
+
+        rebuildIndexes(dataManager.loadOrders());
+        dataManager.registerOrderSource(this::snapshot);
     }
 
     /**
      * 创建订单
      */
-    public synchronized String createOrder(int userId, ShoppingCart cart, String address) {
+    public String createOrder(int userId, ShoppingCart cart, String address) {
+        monitor.lock();
         try {
             // 检查购物车是否为空
             if (cart == null || cart.isEmpty()) {
@@ -47,97 +86,211 @@ public class OrderManager {
                 return null;
             }
 
-            // 检查库存并扣减
-            for (CartItem item : cart.getItems()) {
-                if (!productManager.checkStock(item.getProductId(), item.getQuantity())) {
-                    System.err.println("Insufficient stock for product: " + item.getProductName());
-                    return null;
-                }
-            }
-
-            // 扣减库存
-            for (CartItem item : cart.getItems()) {
-                if (!productManager.reduceStock(item.getProductId(), item.getQuantity())) {
-                    System.err.println("Failed to reduce stock for product: " + item.getProductName());
-                    // 这里应该回滚之前的库存扣减，为简化处理暂不实现
-                    return null;
-                }
+            // 一次性预留所有商品的库存，任一商品不足则整体失败
+            List<CartItem> items = new ArrayList<>(cart.getItems());
+            if (!productManager.reserveStock(items)) {
+                System.err.println("Insufficient stock for order of user: " + userId);
+                return null;
             }
 
-            // 生成订单号
-            String orderId = generateOrderId(userId);
+            try {
+                // 生成订单号
+                String orderId = generateOrderId();
 
-            // 创建订单对象
-            Order order = new Order();
-            order.setOrderId(orderId);
-            order.setUserId(userId);
-            order.setItems(new ArrayList<>(cart.getItems()));
-            order.setTotalAmount(cart.getTotalPrice());
-            order.setAddress(address != null ? address : "");
-            order.setStatus("pending");
-            order.setCreateTime(getCurrentTime());
+                // 创建订单对象
+                Order order = new Order();
+                order.setOrderId(orderId);
+                order.setUserId(userId);
+                order.setItems(items);
+                order.setTotalAmount(cart.getTotalPrice());
+                order.setAddress(address != null ? address : "");
+                order.setStatus("pending");
+                order.setCreateTime(getCurrentTime());
 
-            orders.add(order);
-            dataManager.saveOrders(orders);
+                indexes.add(order);
+                statistics.orderCreated(order);
+                notifyListeners(listener -> listener.orderCreated(order));
+                dataManager.saveOrder(order);
 
-            return orderId;
+                return orderId;
+            } catch (RuntimeException e) {
+                // 订单没有建成，归还已预留的库存
+                productManager.releaseStock(items);
+                throw e;
+            }
         } catch (Exception e) {
             System.err.println("Failed to create order: " + e.getMessage());
             e.printStackTrace();
             return null;
+        } finally {
+            monitor.unlock();
         }
     }
 
     /**
-     * 获取用户的所有订单
+     * 获取用户的所有订单（新订单在前）
      */
     public List<Order> getUserOrders(int userId) {
-        return orders.stream()
-                .filter(o -> o.getUserId() == userId)
-                .sorted((o1, o2) -> o2.getCreateTime().compareTo(o1.getCreateTime()))
-                .collect(Collectors.toList());
+        NavigableMap<OrderKey, Order> userOrders = indexes.byUser.get(userId);
+        if (userOrders == null) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(userOrders.descendingMap().values());
+    }
+
+    /**
+     * 按游标分页获取用户的订单（新订单在前）
+     *
+     * @param cursor 上一页返回的nextCursor，为null时从最新的订单开始
+     * @param limit  每页条数
+     * @return 分页结果；游标对应的订单不存在时返回null
+     */
+    public CursorPage<Order> getUserOrders(int userId, String cursor, int limit) {
+        return findOrders(new OrderFilter(null, userId, null, null), cursor, limit);
+    }
+
+    /**
+     * 按条件查询订单，按游标分页（新订单在前）
+     * 游标是上一页最后一个订单的订单号，定位到它的（下单时间, 序号）后继续向前取
+     *
+     * @return 分页结果；游标对应的订单不存在时返回null
+     */
+    public CursorPage<Order> findOrders(OrderFilter filter, String cursor, int limit) {
+        Iterator<Order> iterator = iterateOrders(filter, cursor, true);
+        if (iterator == null) {
+            return null;
+        }
+
+        List<Order> page = new ArrayList<>(Math.min(limit, 64));
+        while (iterator.hasNext() && page.size() < limit) {
+            page.add(iterator.next());
+        }
+        String nextCursor = iterator.hasNext() && !page.isEmpty()
+                ? page.get(page.size() - 1).getOrderId() : null;
+        return new CursorPage<>(page, nextCursor);
+    }
+
+    /**
+     * 按条件查询订单，按页码分页（新订单在前，page从1开始）
+     * 只遍历到当前页为止：总数取自索引维护的按用户/状态计数，带下单时间条件时不统计总数（total为null），
+     * 由 hasMore 判断是否还有下一页；翻到很深的页时应改用游标分页
+     */
+    public PageResult<Order> findOrders(OrderFilter filter, int page, int size) {
+        OrderIndexes current = this.indexes;
+        Iterator<Order> iterator = iterateOrders(filter, null, true);
+        long skip = (long) (page - 1) * size;
+        for (long i = 0; i < skip && iterator.hasNext(); i++) {
+            iterator.next();
+        }
+
+        List<Order> items = new ArrayList<>(Math.min(size, 64));
+        while (iterator.hasNext() && items.size() < size) {
+            items.add(iterator.next());
+        }
+        return new PageResult<>(items, current.count(filter), page, size, iterator.hasNext());
+    }
+
+    /**
+     * 按条件逐个遍历订单（不复制订单列表），用于流式导出
+     *
+     * @param cursor      从该订单之后开始（不含），为null时从头开始
+     * @param newestFirst true时新订单在前，否则按创建顺序
+     * @return 订单迭代器；游标对应的订单不存在时返回null
+     */
+    public Iterator<Order> iterateOrders(OrderFilter filter, String cursor, boolean newestFirst) {
+        OrderIndexes current = this.indexes;
+        NavigableMap<OrderKey, Order> range = current.select(filter);
+
+        if (cursor != null) {
+            OrderKey position = current.keys.get(cursor);
+            if (position == null) {
+                return null;
+            }
+            range = newestFirst ? range.headMap(position, false) : range.tailMap(position, false);
+        }
+
+        Iterator<Order> iterator = (newestFirst ? range.descendingMap() : range).values().iterator();
+        String status = filter.getStatus();
+        if (status == null || filter.getUserId() == null) {
+            return iterator;
+        }
+
+        // 同时按用户和状态过滤时以用户索引为主，状态逐个判断
+        return new Iterator<Order>() {
+            private Order next = advance();
+
+            private Order advance() {
+                while (iterator.hasNext()) {
+                    Order order = iterator.next();
+                    if (status.equals(order.getStatus())) {
+                        return order;
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Order next() {
+                Order result = next;
+                next = advance();
+                return result;
+            }
+        };
     }
 
     /**
      * 根据订单号获取订单
      */
     public Order getOrderById(String orderId) {
-        return orders.stream()
-                .filter(o -> o.getOrderId().equals(orderId))
-                .findFirst()
-                .orElse(null);
+        if (orderId == null) {
+            return null;
+        }
+        return indexes.byId.get(orderId);
     }
 
     /**
-     * 获取所有订单（管理员用）
+     * 获取所有订单（管理员用，按创建顺序）
      */
     public List<Order> getAllOrders() {
-        return new ArrayList<>(orders);
+        return new ArrayList<>(indexes.byCreation.values());
     }
 
     /**
      * 更新订单状态
      */
-    public synchronized boolean updateOrderStatus(String orderId, String newStatus) {
+    public boolean updateOrderStatus(String orderId, String newStatus) {
+        monitor.lock();
         try {
             Order order = getOrderById(orderId);
             if (order == null) {
                 return false;
             }
 
+            String oldStatus = order.getStatus();
             order.setStatus(newStatus);
-            dataManager.saveOrders(orders);
+            indexes.statusChanged(order, oldStatus);
+            statistics.statusChanged(order, oldStatus);
+            notifyListeners(listener -> listener.orderStatusChanged(order, oldStatus));
+            dataManager.saveOrder(order);
             return true;
         } catch (Exception e) {
             System.err.println("Failed to update order status: " + e.getMessage());
             return false;
+        } finally {
+            monitor.unlock();
         }
     }
 
     /**
      * 取消订单
      */
-    public synchronized boolean cancelOrder(String orderId) {
+    public boolean cancelOrder(String orderId) {
+        monitor.lock();
         try {
             Order order = getOrderById(orderId);
             if (order == null) {
@@ -151,52 +304,50 @@ public class OrderManager {
             }
 
             // 恢复库存
-            for (CartItem item : order.getItems()) {
-                productManager.addStock(item.getProductId(), item.getQuantity());
-            }
+            productManager.releaseStock(order.getItems());
 
+            String oldStatus = order.getStatus();
             order.setStatus("cancelled");
-            dataManager.saveOrders(orders);
+            indexes.statusChanged(order, oldStatus);
+            statistics.statusChanged(order, oldStatus);
+            notifyListeners(listener -> listener.orderStatusChanged(order, oldStatus));
+            dataManager.saveOrder(order);
             return true;
         } catch (Exception e) {
             System.err.println("Failed to cancel order: " + e.getMessage());
             return false;
+        } finally {
+            monitor.unlock();
         }
     }
 
     /**
      * 删除订单
      */
-    public synchronized boolean deleteOrder(String orderId) {
+    public boolean deleteOrder(String orderId) {
+        monitor.lock();
         try {
-            boolean removed = orders.removeIf(o -> o.getOrderId().equals(orderId));
-            if (removed) {
-                dataManager.saveOrders(orders);
+            Order order = getOrderById(orderId);
+            if (order == null || !indexes.remove(orderId)) {
+                return false;
             }
-            return removed;
+            statistics.orderDeleted(order);
+            notifyListeners(listener -> listener.orderDeleted(order));
+            dataManager.removeOrder(orderId);
+            return true;
         } catch (Exception e) {
             System.err.println("Failed to delete order: " + e.getMessage());
             return false;
+        } finally {
+            monitor.unlock();
         }
     }
 
     /**
-     * 获取订单统计信息
+     * 获取订单统计信息（增量维护的实时统计，不遍历订单）
      */
     public OrderStatistics getStatistics() {
-        OrderStatistics stats = new OrderStatistics();
-        stats.totalOrders = orders.size();
-        stats.totalRevenue = orders.stream()
-                .filter(o -> !"cancelled".equals(o.getStatus()))
-                .mapToDouble(Order::getTotalAmount)
-                .sum();
-        stats.pendingOrders = (int) orders.stream()
-                .filter(o -> "pending".equals(o.getStatus()))
-                .count();
-        stats.completedOrders = (int) orders.stream()
-                .filter(o -> "completed".equals(o.getStatus()))
-                .count();
-        return stats;
+        return statistics.snapshot();
     }
 
     /**
@@ -204,39 +355,289 @@ public class OrderManager {
      */
     public static class OrderStatistics {
         public int totalOrders;
-        public double totalRevenue;
+        public BigDecimal totalRevenue = BigDecimal.ZERO;
         public int pendingOrders;
         public int completedOrders;
+        public Map<String, Integer> statusCounts = new TreeMap<>();
+        public Map<String, DailyStatistics> daily = new TreeMap<>();
+        public Map<String, CategoryStatistics> categories = new TreeMap<>();
+    }
+
+    /**
+     * 单日统计：下单数（含已取消）和销售额（不含已取消）
+     */
+    public static class DailyStatistics {
+        public int orders;
+        public BigDecimal revenue = BigDecimal.ZERO;
+    }
+
+    /**
+     * 单个商品分类的统计：售出件数和销售额（不含已取消订单）
+     */
+    public static class CategoryStatistics {
+        public int unitsSold;
+        public BigDecimal revenue = BigDecimal.ZERO;
     }
 
     /**
      * 生成订单号
-     * 格式: 时间戳 + 用户ID + 随机数
+     * 格式: 时间戳(yyyyMMddHHmmss) + 全局递增序号（至少6位）
      */
-    private String generateOrderId(int userId) {
-        LocalDateTime now = LocalDateTime.now();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
-        String timestamp = now.format(formatter);
-        int random = (int) (Math.random() * 1000);
-        return timestamp + userId + String.format("%03d", random);
+    private String generateOrderId() {
+        return idGenerator.nextTimestamped(IdGenerator.ORDER);
     }
 
     /**
      * 获取当前时间
      */
     private String getCurrentTime() {
-        LocalDateTime now = LocalDateTime.now();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-        return now.format(formatter);
+        return LocalDateTime.now().format(TIME_FORMAT);
+    }
+
+    /**
+     * 订单列表快照（供持久化使用）
+     */
+    private List<Order> snapshot() {
+        monitor.lock();
+        try {
+            return getAllOrders();
+        } finally {
+            monitor.unlock();
+        }
+    }
+
+    /**
+     * 根据订单列表重建索引和统计，按下单时间确定创建顺序（同一时间的保持文件中的顺序）
+     */
+    private void rebuildIndexes(List<Order> loaded) {
+        monitor.lock();
+        try {
+            OrderIndexes rebuilt = new OrderIndexes();
+            OrderStatisticsAggregator rebuiltStatistics = newStatistics();
+            List<Order> sorted = loaded != null ? new ArrayList<>(loaded) : new ArrayList<>();
+            sorted.sort(Comparator.comparing(o -> o.getCreateTime() != null ? o.getCreateTime() : ""));
+            for (Order order : sorted) {
+                rebuilt.add(order);
+                rebuiltStatistics.orderCreated(order);
+            }
+            this.indexes = rebuilt;
+            this.statistics = rebuiltStatistics;
+            notifyListeners(listener -> listener.ordersReloaded(sorted));
+        } finally {
+            monitor.unlock();
+        }
+    }
+
+    /**
+     * 通知订单事件监听器，监听器出错不影响订单本身的处理
+     */
+    private void notifyListeners(Consumer<OrderEventListener> event) {
+        for (OrderEventListener listener : listeners) {
+            try {
+                event.accept(listener);
+            } catch (RuntimeException e) {
+                System.err.println("Order event listener failed: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private OrderStatisticsAggregator newStatistics() {
+        return new OrderStatisticsAggregator(productId -> {
+            Product product = productManager.getProductById(productId);
+            return product != null ? product.getCategory() : null;
+        });
     }
 
     /**
      * 刷新订单列表
      */
     public void refresh() {
-        this.orders = dataManager.loadOrders();
-        if (this.orders == null) {
-            this.orders = new ArrayList<>();
+        rebuildIndexes(dataManager.loadOrders());
+    }
+
+    /**
+     * 订单索引：订单号索引，以及按（下单时间, 序号）排序的全部订单、每个用户、每种状态的订单
+     * 每个订单在加入索引时分配一个递增的序号，下单时间相同的订单按序号区分先后
+     * 另外维护每个用户、每种状态、每个用户每种状态的订单数（跳表的size()需要遍历）
+     */
+    private static class OrderIndexes {
+        private final Map<String, Order> byId = new ConcurrentHashMap<>();
+        private final Map<String, OrderKey> keys = new ConcurrentHashMap<>();
+        private final NavigableMap<OrderKey, Order> byCreation = new ConcurrentSkipListMap<>();
+        private final Map<Integer, NavigableMap<OrderKey, Order>> byUser = new ConcurrentHashMap<>();
+        private final Map<String, NavigableMap<OrderKey, Order>> byStatus = new ConcurrentHashMap<>();
+        private final Map<Integer, Integer> countByUser = new ConcurrentHashMap<>();
+        private final Map<String, Integer> countByStatus = new ConcurrentHashMap<>();
+        private final Map<Integer, Map<String, Integer>> countByUserStatus = new ConcurrentHashMap<>();
+        private long nextSequence;
+
+        /**
+         * 把订单加入所有索引（调用方持有OrderManager的锁）
+         */
+        void add(Order order) {
+            OrderKey key = new OrderKey(order.getCreateTime(), nextSequence++);
+            byId.put(order.getOrderId(), order);
+            keys.put(order.getOrderId(), key);
+            byCreation.put(key, order);
+            byUser.computeIfAbsent(order.getUserId(), u -> new ConcurrentSkipListMap<>()).put(key, order);
+            if (order.getStatus() != null) {
+                byStatus.computeIfAbsent(order.getStatus(), st -> new ConcurrentSkipListMap<>()).put(key, order);
+            }
+            adjust(countByUser, order.getUserId(), 1);
+            countStatus(order.getUserId(), order.getStatus(), 1);
+        }
+
+        /**
+         * 把订单从所有索引中移除
+         */
+        boolean remove(String orderId) {
+            Order order = byId.remove(orderId);
+            if (order == null) {
+                return false;
+            }
+
+            OrderKey key = keys.remove(orderId);
+            byCreation.remove(key);
+            removeFromBucket(byUser, order.getUserId(), key);
+            if (order.getStatus() != null) {
+                removeFromBucket(byStatus, order.getStatus(), key);
+            }
+            adjust(countByUser, order.getUserId(), -1);
+            countStatus(order.getUserId(), order.getStatus(), -1);
+            return true;
+        }
+
+        /**
+         * 订单状态变更后移动它在状态索引中的位置
+         */
+        void statusChanged(Order order, String oldStatus) {
+            OrderKey key = keys.get(order.getOrderId());
+            if (key == null) {
+                return;
+            }
+            if (oldStatus != null) {
+                removeFromBucket(byStatus, oldStatus, key);
+            }
+            if (order.getStatus() != null) {
+                byStatus.computeIfAbsent(order.getStatus(), st -> new ConcurrentSkipListMap<>()).put(key, order);
+            }
+            countStatus(order.getUserId(), oldStatus, -1);
+            countStatus(order.getUserId(), order.getStatus(), 1);
+        }
+
+        /**
+         * 符合条件的订单数，不遍历订单
+         *
+         * @return 订单数；带下单时间条件时无法直接得出，返回null
+         */
+        Integer count(OrderFilter filter) {
+            if (filter.getFrom() != null || filter.getTo() != null) {
+                return null;
+            }
+
+            Integer count;
+            if (filter.getUserId() != null && filter.getStatus() != null) {
+                Map<String, Integer> byStatusOfUser = countByUserStatus.get(filter.getUserId());
+                count = byStatusOfUser != null ? byStatusOfUser.get(filter.getStatus()) : null;
+            } else if (filter.getUserId() != null) {
+                count = countByUser.get(filter.getUserId());
+            } else if (filter.getStatus() != null) {
+                count = countByStatus.get(filter.getStatus());
+            } else {
+                count = byId.size();
+            }
+            return count != null ? count : 0;
+        }
+
+        private void countStatus(int userId, String status, int delta) {
+            if (status == null) {
+                return;
+            }
+            adjust(countByStatus, status, delta);
+            Map<String, Integer> byStatusOfUser =
+                    countByUserStatus.computeIfAbsent(userId, u -> new ConcurrentHashMap<>());
+            adjust(byStatusOfUser, status, delta);
+            if (byStatusOfUser.isEmpty()) {
+                countByUserStatus.remove(userId);
+            }
+        }
+
+        /**
+         * 计数加减（调用方持有OrderManager的锁），减到0时移除
+         */
+        private static <K> void adjust(Map<K, Integer> counts, K key, int delta) {
+            counts.merge(key, delta, (count, change) -> count + change == 0 ? null : count + change);
+        }
+
+        /**
+         * 选出最窄的索引（用户 > 状态 > 全部），并截取下单时间区间
+         */
+        NavigableMap<OrderKey, Order> select(OrderFilter filter) {
+            NavigableMap<OrderKey, Order> source;
+            if (filter.getUserId() != null) {
+                source = byUser.get(filter.getUserId());
+            } else if (filter.getStatus() != null) {
+                source = byStatus.get(filter.getStatus());
+            } else {
+                source = byCreation;
+            }
+            if (source == null) {
+                return Collections.emptyNavigableMap();
+            }
+
+            String from = filter.getFrom();
+            String to = filter.getTo();
+            if (from != null && to != null) {
+                if (from.compareTo(to) >= 0) {
+                    return Collections.emptyNavigableMap();
+                }
+                return source.subMap(OrderKey.first(from), true, OrderKey.first(to), false);
+            }
+            if (from != null) {
+                return source.tailMap(OrderKey.first(from), true);
+            }
+            if (to != null) {
+                return source.headMap(OrderKey.first(to), false);
+            }
+            return source;
+        }
+
+        private static <K> void removeFromBucket(Map<K, NavigableMap<OrderKey, Order>> index, K bucketKey,
+                                                 OrderKey key) {
+            NavigableMap<OrderKey, Order> bucket = index.get(bucketKey);
+            if (bucket != null) {
+                bucket.remove(key);
+                if (bucket.isEmpty()) {
+                    index.remove(bucketKey);
+                }
+            }
+        }
+    }
+
+    /**
+     * 订单在有序索引中的键：先按下单时间（yyyy-MM-dd HH:mm:ss 字符串顺序即时间顺序），再按序号
+     */
+    private static final class OrderKey implements Comparable<OrderKey> {
+        private final String createTime;
+        private final long sequence;
+
+        OrderKey(String createTime, long sequence) {
+            this.createTime = createTime != null ? createTime : "";
+            this.sequence = sequence;
+        }
+
+        /**
+         * 该时间点（或日期）上排在最前的键，用作区间边界
+         */
+        static OrderKey first(String time) {
+            return new OrderKey(time, Long.MIN_VALUE);
+        }
+
+        @Override
+        public int compareTo(OrderKey other) {
+            int byTime = createTime.compareTo(other.createTime);
+            return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
         }
     }
 }
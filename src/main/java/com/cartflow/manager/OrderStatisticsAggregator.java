@@ -0,0 +1,140 @@
+package com.cartflow.manager;
+
+import com.cartflow.model.CartItem;
+import com.cartflow.model.Order;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 订单实时统计
+ * 由OrderManager在创建、改状态、取消、删除订单时增量更新，每次更新是O(1)（与订单总数无关），
+ * 查询统计时只复制汇总结果，不遍历订单列表。金额使用BigDecimal累加，不产生浮点误差。
+ *
+ * 销售额只统计未取消的订单；按天统计按下单日期（createTime的前10位）归类；
+ * 按分类统计时商品分类在第一次遇到该商品时确定并缓存，保证加减同一订单时归到同一分类。
+ */
+class OrderStatisticsAggregator {
+    private static final String STATUS_CANCELLED = "cancelled";
+    private static final String UNKNOWN = "unknown";
+
+    private final Function<Integer, String> categoryResolver;
+    private final Map<Integer, String> categoryCache = new ConcurrentHashMap<>();
+
+    private int totalOrders;
+    private BigDecimal totalRevenue = BigDecimal.ZERO;
+    private final Map<String, Integer> statusCounts = new HashMap<>();
+    private final Map<String, Bucket> daily = new TreeMap<>();
+    private final Map<String, Bucket> categories = new TreeMap<>();
+
+    OrderStatisticsAggregator(Function<Integer, String> categoryResolver) {
+        this.categoryResolver = categoryResolver;
+    }
+
+    /**
+     * 新订单
+     */
+    synchronized void orderCreated(Order order) {
+        apply(order, order.getStatus(), 1);
+    }
+
+    /**
+     * 订单状态变更（包括取消），order已经是新状态
+     */
+    synchronized void statusChanged(Order order, String oldStatus) {
+        apply(order, oldStatus, -1);
+        apply(order, order.getStatus(), 1);
+    }
+
+    /**
+     * 订单被删除
+     */
+    synchronized void orderDeleted(Order order) {
+        apply(order, order.getStatus(), -1);
+    }
+
+    /**
+     * 以sign（+1或-1）把一个处于status状态的订单计入或移出统计
+     */
+    private void apply(Order order, String status, int sign) {
+        String statusKey = status != null ? status : UNKNOWN;
+        totalOrders += sign;
+        statusCounts.merge(statusKey, sign, Integer::sum);
+        if (statusCounts.get(statusKey) == 0) {
+            statusCounts.remove(statusKey);
+        }
+
+        boolean countsRevenue = !STATUS_CANCELLED.equals(status);
+        BigDecimal amount = countsRevenue ? BigDecimal.valueOf(order.getTotalAmount()) : BigDecimal.ZERO;
+        if (sign < 0) {
+            amount = amount.negate();
+        }
+        totalRevenue = totalRevenue.add(amount);
+
+        String day = order.getCreateTime() != null && order.getCreateTime().length() >= 10
+                ? order.getCreateTime().substring(0, 10) : UNKNOWN;
+        update(daily, day, sign, 0, amount);
+
+        if (countsRevenue && order.getItems() != null) {
+            for (CartItem item : order.getItems()) {
+                BigDecimal itemRevenue = BigDecimal.valueOf(item.getPrice())
+                        .multiply(BigDecimal.valueOf(item.getQuantity()));
+                update(categories, categoryOf(item.getProductId()), 0,
+                        sign * item.getQuantity(), sign > 0 ? itemRevenue : itemRevenue.negate());
+            }
+        }
+    }
+
+    private static void update(Map<String, Bucket> buckets, String key, int orders, int units, BigDecimal revenue) {
+        Bucket bucket = buckets.computeIfAbsent(key, k -> new Bucket());
+        bucket.orders += orders;
+        bucket.units += units;
+        bucket.revenue = bucket.revenue.add(revenue);
+        if (bucket.orders == 0 && bucket.units == 0 && bucket.revenue.signum() == 0) {
+            buckets.remove(key);
+        }
+    }
+
+    private String categoryOf(int productId) {
+        return categoryCache.computeIfAbsent(productId, id -> {
+            String category = categoryResolver.apply(id);
+            return category != null ? category : UNKNOWN;
+        });
+    }
+
+    /**
+     * 当前统计结果的副本
+     */
+    synchronized OrderManager.OrderStatistics snapshot() {
+        OrderManager.OrderStatistics stats = new OrderManager.OrderStatistics();
+        stats.totalOrders = totalOrders;
+        stats.totalRevenue = totalRevenue;
+        stats.pendingOrders = statusCounts.getOrDefault("pending", 0);
+        stats.completedOrders = statusCounts.getOrDefault("completed", 0);
+        stats.statusCounts = new TreeMap<>(statusCounts);
+
+        for (Map.Entry<String, Bucket> entry : daily.entrySet()) {
+            OrderManager.DailyStatistics day = new OrderManager.DailyStatistics();
+            day.orders = entry.getValue().orders;
+            day.revenue = entry.getValue().revenue;
+            stats.daily.put(entry.getKey(), day);
+        }
+        for (Map.Entry<String, Bucket> entry : categories.entrySet()) {
+            OrderManager.CategoryStatistics category = new OrderManager.CategoryStatistics();
+            category.unitsSold = entry.getValue().units;
+            category.revenue = entry.getValue().revenue;
+            stats.categories.put(entry.getKey(), category);
+        }
+        return stats;
+    }
+
+    private static class Bucket {
+        private int orders;
+        private int units;
+        private BigDecimal revenue = BigDecimal.ZERO;
+    }
+}
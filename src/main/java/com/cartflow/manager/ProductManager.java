@@ -1,74 +1,196 @@
 package com.cartflow.manager;
 
+import com.cartflow.model.CartItem;
+import com.cartflow.model.PageResult;
 import com.cartflow.model.Product;
+import com.cartflow.search.ProductSearchIndex;
+import com.cartflow.search.SearchResult;
+import com.cartflow.search.SearchResultCache;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 商品管理类
  * 负责商品的增删改查和库存管理
+ *
+ * 商品按ID存放在哈希主索引中，另维护两个二级索引：
+ *   状态索引   - status -> (id -> 商品)
+ *   分类索引   - category -> (id -> 上架商品)，只收录上架商品，供前台分类查询使用
+ * 写操作在实例锁内同时维护三个索引，读操作直接读取并发容器，不加锁。
+ * 上架商品的名称、分类和描述另外进入倒排索引，供关键字搜索使用，热门查询的排序结果另有缓存。
+ * 库存是商品上的原子计数器，扣减和归还不加锁，变更由后台任务合并后异步持久化。
+ * 商品信息每次变更后递增目录版本号，库存变更另外递增库存版本号，响应缓存据此判断缓存内容是否过期。
  */
 @Component
 public class ProductManager {
 
+    private static final String STATUS_ACTIVE = "active";
+
     @Autowired
     private DataManager dataManager;
 
-    private List<Product> products;
+    @Autowired
+    private IdGenerator idGenerator;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final MonitorLock monitor = new MonitorLock("product");
+
+    private volatile CatalogIndexes indexes = new CatalogIndexes();
+
+    private final ProductSearchIndex searchIndex = new ProductSearchIndex();
+
+    private SearchResultCache searchCache;
+
+    private final Set<Integer> dirtyStock = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong catalogVersion = new AtomicLong();
+
+    private final AtomicLong stockVersion = new AtomicLong();
+
+    @Value("${cartflow.product.stock-flush-interval-ms:20}")
+    private long stockFlushIntervalMs;
+
+    @Value("${cartflow.search.cache.max-result-ids:1000000}")
+    private long searchCacheMaxResultIds;
+
+    @Value("${cartflow.search.cache.ttl-seconds:600}")
+    private long searchCacheTtlSeconds;
+
+    private ScheduledExecutorService stockFlusher;
 
     @PostConstruct
     public void init() {
-        this.products = dataManager.loadProducts();
-        if (this.products == null) {
-            this.products = new ArrayList<>();
+        monitor.bind(meterRegistry);
+        Gauge.builder("cartflow.entities", this, m -> m.indexes.byId.size())
+                .tag("entity", "product")
+                .register(meterRegistry);
+        searchCache = new SearchResultCache(searchIndex, searchCacheMaxResultIds, searchCacheTtlSeconds);
+        searchCache.bind(meterRegistry, "product-search");
+
+        rebuildIndexes(dataManager.loadProducts());
+        dataManager.registerProductSource(this::snapshot);
+
+        stockFlusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "cartflow-stock-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        stockFlusher.scheduleWithFixedDelay(this::flushStock,
+                stockFlushIntervalMs, stockFlushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 关闭前把未持久化的库存变更写出
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (stockFlusher != null) {
+            stockFlusher.shutdown();
         }
+        flushStock();
     }
 
     /**
      * 获取所有商品
      */
     public List<Product> getAllProducts() {
-        return new ArrayList<>(products);
+        List<Product> all = new ArrayList<>(indexes.byId.values());
+        all.sort(Comparator.comparingInt(Product::getId));
+        return all;
     }
 
     /**
      * 获取所有上架商品
      */
     public List<Product> getActiveProducts() {
-        return products.stream()
-                .filter(p -> "active".equals(p.getStatus()))
-                .collect(Collectors.toList());
+        NavigableMap<Integer, Product> active = indexes.byStatus.get(STATUS_ACTIVE);
+        return active != null ? new ArrayList<>(active.values()) : new ArrayList<>();
+    }
+
+    /**
+     * 当前目录版本号，商品增删改时递增，不含库存变化
+     * 版本号在数据修改之后才递增：先读版本号再读数据的调用方，拿到的数据不会比版本号旧
+     */
+    public long getCatalogVersion() {
+        return catalogVersion.get();
+    }
+
+    /**
+     * 当前库存版本号，任一商品库存变化时递增（下单、取消都会引起），规则同目录版本号
+     */
+    public long getStockVersion() {
+        return stockVersion.get();
     }
 
     /**
      * 根据ID获取商品
      */
     public Product getProductById(int id) {
-        return products.stream()
-                .filter(p -> p.getId() == id)
-                .findFirst()
-                .orElse(null);
+        return indexes.byId.get(id);
     }
 
     /**
-     * 搜索商品（按名称或描述）
+     * 搜索商品（按名称、分类或描述），返回全部结果，按相关度排序
      */
     public List<Product> searchProducts(String keyword) {
         if (keyword == null || keyword.trim().isEmpty()) {
             return getActiveProducts();
         }
 
-        String lowerKeyword = keyword.toLowerCase().trim();
-        return products.stream()
-                .filter(p -> "active".equals(p.getStatus()))
-                .filter(p -> p.getName().toLowerCase().contains(lowerKeyword) ||
-                           p.getDescription().toLowerCase().contains(lowerKeyword))
-                .collect(Collectors.toList());
+        return toProducts(searchCache.search(keyword, 0, -1));
+    }
+
+    /**
+     * 分页搜索商品，按相关度排序
+     *
+     * @param page 页码，从1开始
+     * @param size 每页条数
+     */
+    public PageResult<Product> searchProducts(String keyword, int page, int size) {
+        // 页码很大时偏移量超出int范围，按long计算后截断（结果为空页）
+        int offset = (int) Math.min(Math.max((long) (page - 1) * size, 0), Integer.MAX_VALUE);
+        if (keyword == null || keyword.trim().isEmpty()) {
+            List<Product> active = getActiveProducts();
+            int from = Math.min(offset, active.size());
+            int to = (int) Math.min((long) from + size, active.size());
+            return new PageResult<>(new ArrayList<>(active.subList(from, to)), active.size(), page, size);
+        }
+
+        SearchResult result = searchCache.search(keyword, offset, size);
+        return new PageResult<>(toProducts(result), result.getTotal(), page, size);
+    }
+
+    private List<Product> toProducts(SearchResult result) {
+        List<Product> found = new ArrayList<>(result.getProductIds().size());
+        for (Integer productId : result.getProductIds()) {
+            Product product = indexes.byId.get(productId);
+            if (product != null) {
+                found.add(product);
+            }
+        }
+        return found;
     }
 
     /**
@@ -79,94 +201,119 @@ public class ProductManager {
             return getActiveProducts();
         }
 
-        return products.stream()
-                .filter(p -> "active".equals(p.getStatus()))
-                .filter(p -> category.equals(p.getCategory()))
-                .collect(Collectors.toList());
+        NavigableMap<Integer, Product> inCategory = indexes.byCategory.get(category);
+        return inCategory != null ? new ArrayList<>(inCategory.values()) : new ArrayList<>();
     }
 
     /**
      * 获取所有分类
      */
     public List<String> getAllCategories() {
-        return products.stream()
-                .filter(p -> "active".equals(p.getStatus()))
-                .map(Product::getCategory)
-                .distinct()
-                .collect(Collectors.toList());
+        return new ArrayList<>(indexes.byCategory.keySet());
     }
 
     /**
      * 添加商品
      */
-    public synchronized boolean addProduct(Product product) {
+    public boolean addProduct(Product product) {
+        monitor.lock();
         try {
             // 生成新ID
-            int maxId = products.stream()
-                    .mapToInt(Product::getId)
-                    .max()
-                    .orElse(0);
-            product.setId(maxId + 1);
-
-            products.add(product);
-            dataManager.saveProducts(products);
+            product.setId(idGenerator.nextInt(IdGenerator.PRODUCT));
+
+            indexes.add(product);
+            updateSearchIndex(product);
+            catalogVersion.incrementAndGet();
+            dataManager.saveProduct(product);
             return true;
         } catch (Exception e) {
             System.err.println("Failed to add product: " + e.getMessage());
             return false;
+        } finally {
+            monitor.unlock();
         }
     }
 
     /**
      * 更新商品
      */
-    public synchronized boolean updateProduct(Product updatedProduct) {
+    public boolean updateProduct(Product updatedProduct) {
+        monitor.lock();
         try {
-            for (int i = 0; i < products.size(); i++) {
-                if (products.get(i).getId() == updatedProduct.getId()) {
-                    products.set(i, updatedProduct);
-                    dataManager.saveProducts(products);
-                    return true;
-                }
+            Product existing = indexes.byId.get(updatedProduct.getId());
+            if (existing == null) {
+                return false;
             }
-            return false;
+
+            // 原地更新而不是替换对象，避免并发的库存CAS落在已被替换的旧对象上
+            String oldStatus = existing.getStatus();
+            String oldCategory = existing.getCategory();
+            existing.setName(updatedProduct.getName());
+            existing.setPrice(updatedProduct.getPrice());
+            existing.setCategory(updatedProduct.getCategory());
+            existing.setDescription(updatedProduct.getDescription());
+            existing.setImageUrl(updatedProduct.getImageUrl());
+            existing.setStatus(updatedProduct.getStatus());
+            existing.setStock(updatedProduct.getStock());
+            indexes.update(existing, oldStatus, oldCategory);
+            updateSearchIndex(existing);
+            catalogVersion.incrementAndGet();
+            dataManager.saveProduct(existing);
+            return true;
         } catch (Exception e) {
             System.err.println("Failed to update product: " + e.getMessage());
             return false;
+        } finally {
+            monitor.unlock();
         }
     }
 
     /**
      * 删除商品（软删除，设置为inactive）
      */
-    public synchronized boolean deleteProduct(int id) {
+    public boolean deleteProduct(int id) {
+        monitor.lock();
         try {
             Product product = getProductById(id);
             if (product != null) {
+                String oldStatus = product.getStatus();
                 product.setStatus("inactive");
-                dataManager.saveProducts(products);
+                indexes.update(product, oldStatus, product.getCategory());
+                searchIndex.remove(id);
+                catalogVersion.incrementAndGet();
+                dataManager.saveProduct(product);
                 return true;
             }
             return false;
         } catch (Exception e) {
             System.err.println("Failed to delete product: " + e.getMessage());
             return false;
+        } finally {
+            monitor.unlock();
         }
     }
 
     /**
      * 物理删除商品
      */
-    public synchronized boolean removeProduct(int id) {
+    public boolean removeProduct(int id) {
+        monitor.lock();
         try {
-            boolean removed = products.removeIf(p -> p.getId() == id);
-            if (removed) {
-                dataManager.saveProducts(products);
+            Product product = indexes.byId.get(id);
+            if (product == null) {
+                return false;
             }
-            return removed;
+
+            indexes.remove(product);
+            searchIndex.remove(id);
+            catalogVersion.incrementAndGet();
+            dataManager.removeProduct(id);
+            return true;
         } catch (Exception e) {
             System.err.println("Failed to remove product: " + e.getMessage());
             return false;
+        } finally {
+            monitor.unlock();
         }
     }
 
@@ -175,77 +322,272 @@ public class ProductManager {
      */
     public boolean checkStock(int productId, int quantity) {
         Product product = getProductById(productId);
-        return product != null && product.getStock() >= quantity && "active".equals(product.getStatus());
+        return product != null && product.getStock() >= quantity && STATUS_ACTIVE.equals(product.getStatus());
     }
 
     /**
-     * 减少库存
+     * 减少库存（CAS扣减，不加锁）
      */
-    public synchronized boolean reduceStock(int productId, int quantity) {
-        try {
-            Product product = getProductById(productId);
-            if (product == null) {
-                return false;
-            }
+    public boolean reduceStock(int productId, int quantity) {
+        Product product = getProductById(productId);
+        if (product == null || !product.tryReduceStock(quantity)) {
+            return false;
+        }
 
-            if (product.getStock() < quantity) {
-                return false;
-            }
+        markStockDirty(product);
+        return true;
+    }
 
-            product.setStock(product.getStock() - quantity);
-            dataManager.saveProducts(products);
-            return true;
-        } catch (Exception e) {
-            System.err.println("Failed to reduce stock: " + e.getMessage());
+    /**
+     * 增加库存
+     */
+    public boolean addStock(int productId, int quantity) {
+        Product product = getProductById(productId);
+        if (product == null) {
             return false;
         }
+
+        product.addStock(quantity);
+        markStockDirty(product);
+        return true;
     }
 
     /**
-     * 增加库存
+     * 更新库存
      */
-    public synchronized boolean addStock(int productId, int quantity) {
-        try {
-            Product product = getProductById(productId);
-            if (product == null) {
+    public boolean updateStock(int productId, int newStock) {
+        Product product = getProductById(productId);
+        if (product == null) {
+            return false;
+        }
+
+        product.setStock(newStock);
+        markStockDirty(product);
+        return true;
+    }
+
+    /**
+     * 批量预留库存（下单时扣减整个购物车）
+     * 逐个商品CAS扣减，任一商品不足时把已扣减的补回，整体不生效；
+     * 不同商品的购买者互不阻塞，同一商品的购买者只在CAS上竞争
+     */
+    public boolean reserveStock(List<CartItem> items) {
+        Map<Integer, Integer> quantities = sumQuantities(items);
+        List<Product> reserved = new ArrayList<>(quantities.size());
+
+        for (Map.Entry<Integer, Integer> entry : quantities.entrySet()) {
+            Product product = getProductById(entry.getKey());
+            if (product == null || !STATUS_ACTIVE.equals(product.getStatus())
+                    || !product.tryReduceStock(entry.getValue())) {
+                System.err.println("Insufficient stock for product: " + entry.getKey());
+                for (Product rollback : reserved) {
+                    rollback.addStock(quantities.get(rollback.getId()));
+                }
+                // 回滚前的中间库存可能已被读到，同样视为一次变更
+                if (!reserved.isEmpty()) {
+                    stockVersion.incrementAndGet();
+                }
                 return false;
             }
+            reserved.add(product);
+        }
 
-            product.setStock(product.getStock() + quantity);
-            dataManager.saveProducts(products);
-            return true;
+        for (Product product : reserved) {
+            markStockDirty(product);
+        }
+        return true;
+    }
+
+    /**
+     * 批量归还库存（取消订单或下单失败时）
+     */
+    public boolean releaseStock(List<CartItem> items) {
+        Map<Integer, Integer> quantities = sumQuantities(items);
+        for (Map.Entry<Integer, Integer> entry : quantities.entrySet()) {
+            Product product = getProductById(entry.getKey());
+            if (product != null) {
+                product.addStock(entry.getValue());
+                markStockDirty(product);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 标记库存已变更，由后台任务异步持久化
+     */
+    private void markStockDirty(Product product) {
+        dirtyStock.add(product.getId());
+        stockVersion.incrementAndGet();
+    }
+
+    /**
+     * 把库存有变更的商品合并成一次批量写入
+     * 在实例锁内追加日志，与其他商品记录保持先后顺序；序列化时读取的是计数器的最新值
+     */
+    public void flushStock() {
+        if (dirtyStock.isEmpty()) {
+            return;
+        }
+
+        monitor.lock();
+        try {
+            List<Product> changed = new ArrayList<>();
+            Iterator<Integer> iterator = dirtyStock.iterator();
+            while (iterator.hasNext()) {
+                Product product = indexes.byId.get(iterator.next());
+                iterator.remove();
+                if (product != null) {
+                    changed.add(product);
+                }
+            }
+            if (!changed.isEmpty()) {
+                dataManager.saveProductBatch(changed);
+            }
         } catch (Exception e) {
-            System.err.println("Failed to add stock: " + e.getMessage());
-            return false;
+            System.err.println("Failed to flush stock: " + e.getMessage());
+        } finally {
+            monitor.unlock();
+        }
+    }
+
+    private static Map<Integer, Integer> sumQuantities(List<CartItem> items) {
+        Map<Integer, Integer> quantities = new LinkedHashMap<>();
+        for (CartItem item : items) {
+            quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
         }
+        return quantities;
     }
 
     /**
-     * 更新库存
+     * 上架商品进入倒排索引，其他状态的商品从中移除
+     */
+    private void updateSearchIndex(Product product) {
+        if (STATUS_ACTIVE.equals(product.getStatus())) {
+            searchIndex.index(product);
+        } else {
+            searchIndex.remove(product.getId());
+        }
+    }
+
+    /**
+     * 根据商品列表重建全部索引，新索引建好后整体替换，读操作不会看到半成品
      */
-    public synchronized boolean updateStock(int productId, int newStock) {
+    private void rebuildIndexes(List<Product> products) {
+        monitor.lock();
         try {
-            Product product = getProductById(productId);
-            if (product == null) {
-                return false;
+            CatalogIndexes rebuilt = new CatalogIndexes();
+            int maxId = 0;
+            if (products != null) {
+                for (Product product : products) {
+                    rebuilt.add(product);
+                    maxId = Math.max(maxId, product.getId());
+                }
             }
+            this.indexes = rebuilt;
+            idGenerator.advanceTo(IdGenerator.PRODUCT, maxId);
 
-            product.setStock(newStock);
-            dataManager.saveProducts(products);
-            return true;
-        } catch (Exception e) {
-            System.err.println("Failed to update stock: " + e.getMessage());
-            return false;
+            NavigableMap<Integer, Product> active = rebuilt.byStatus.get(STATUS_ACTIVE);
+            searchIndex.rebuild(active != null ? active.values() : new ArrayList<>());
+            catalogVersion.incrementAndGet();
+        } finally {
+            monitor.unlock();
         }
     }
 
+    /**
+     * 商品列表快照（供持久化使用）
+     */
+    private List<Product> snapshot() {
+        return getAllProducts();
+    }
+
     /**
      * 刷新商品列表
      */
     public void refresh() {
-        this.products = dataManager.loadProducts();
-        if (this.products == null) {
-            this.products = new ArrayList<>();
+        rebuildIndexes(dataManager.loadProducts());
+    }
+
+    /**
+     * 商品主索引和二级索引
+     */
+    private static class CatalogIndexes {
+        private final Map<Integer, Product> byId = new ConcurrentHashMap<>();
+        private final Map<String, NavigableMap<Integer, Product>> byStatus = new ConcurrentHashMap<>();
+        private final NavigableMap<String, NavigableMap<Integer, Product>> byCategory = new ConcurrentSkipListMap<>();
+
+        /**
+         * 把商品加入主索引和二级索引
+         */
+        void add(Product product) {
+            byId.put(product.getId(), product);
+            addToBucket(byStatus, product.getStatus(), product);
+            addToBucket(byCategory, categoryKey(product.getStatus(), product.getCategory()), product);
+        }
+
+        /**
+         * 商品状态或分类修改后调整二级索引
+         * 主索引中的条目始终存在（只做put），二级索引先加入新桶再移出旧桶，无锁读取不会短暂查不到商品
+         *
+         * @param oldStatus   修改前的状态
+         * @param oldCategory 修改前的分类
+         */
+        void update(Product product, String oldStatus, String oldCategory) {
+            byId.put(product.getId(), product);
+
+            String newStatus = product.getStatus();
+            addToBucket(byStatus, newStatus, product);
+            if (oldStatus != null && !oldStatus.equals(newStatus)) {
+                removeFromBucket(byStatus, oldStatus, product.getId());
+            }
+
+            String oldCategoryKey = categoryKey(oldStatus, oldCategory);
+            String newCategoryKey = categoryKey(newStatus, product.getCategory());
+            addToBucket(byCategory, newCategoryKey, product);
+            if (oldCategoryKey != null && !oldCategoryKey.equals(newCategoryKey)) {
+                removeFromBucket(byCategory, oldCategoryKey, product.getId());
+            }
+        }
+
+        /**
+         * 分类索引只收录上架商品
+         */
+        private static String categoryKey(String status, String category) {
+            return STATUS_ACTIVE.equals(status) ? category : null;
+        }
+
+        private static void addToBucket(Map<String, NavigableMap<Integer, Product>> index,
+                                        String key, Product product) {
+            if (key != null) {
+                index.computeIfAbsent(key, k -> new ConcurrentSkipListMap<>()).put(product.getId(), product);
+            }
+        }
+
+        /**
+         * 把商品从所有索引中移除（物理删除）
+         */
+        void remove(Product product) {
+            byId.remove(product.getId());
+
+            if (product.getStatus() != null) {
+                removeFromBucket(byStatus, product.getStatus(), product.getId());
+            }
+
+            if (product.getCategory() != null) {
+                removeFromBucket(byCategory, product.getCategory(), product.getId());
+            }
+        }
+
+        private static void removeFromBucket(Map<String, NavigableMap<Integer, Product>> index,
+                                             String key, int productId) {
+            NavigableMap<Integer, Product> bucket = index.get(key);
+            if (bucket != null) {
+                bucket.remove(productId);
+                if (bucket.isEmpty()) {
+                    index.remove(key);
+                }
+            }
         }
     }
 }
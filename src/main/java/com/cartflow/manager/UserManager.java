@@ -1,212 +1,305 @@
 package com.cartflow.manager;
 
+import com.cartflow.auth.PasswordHasher;
 import com.cartflow.model.User;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 用户管理类
  * 负责用户的注册、登录和信息管理
+ *
+ * 用户按ID和用户名各建一个并发哈希索引，登录、注册和按ID/用户名查询都是O(1)；
+ * 新用户ID由IdGenerator分配，注册通过原子地占用用户名保证唯一，不需要全局锁。
+ * 密码哈希由 PasswordHasher 在专用线程池中计算，注册、登录和修改密码都返回 CompletableFuture；
+ * 登录时旧格式（MD5）或迭代次数不足的密码哈希会被替换为当前配置的哈希。
  */
 @Component
 public class UserManager {
 
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
     @Autowired
     private DataManager dataManager;
 
-    private List<User> users;
+    @Autowired
+    private IdGenerator idGenerator;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    private final MonitorLock monitor = new MonitorLock("user");
+
+    private volatile UserIndexes indexes = new UserIndexes();
 
     @PostConstruct
     public void init() {
-        this.users = dataManager.loadUsers();
-        if (this.users == null) {
-            this.users = new ArrayList<>();
-        }
+        monitor.bind(meterRegistry);
+        Gauge.builder("cartflow.entities", this, m -> m.indexes.byId.size())
+                .tag("entity", "user")
+                .register(meterRegistry);
+
+        this.indexes = buildIndexes(dataManager.loadUsers());
+        dataManager.registerUserSource(this::snapshot);
     }
 
     /**
-     * 用户注册
+     * 用户注册，用户名已存在时结果为null
      */
-    public synchronized User register(String username, String password, String email) {
-        // 检查用户名是否已存在
-        if (isUsernameExists(username)) {
+    public CompletableFuture<User> register(String username, String password, String email) {
+        // 检查用户名是否已存在，已存在时不必计算哈希
+        if (indexes.byUsername.containsKey(username)) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return passwordHasher.hash(password).thenApply(hash -> addUser(username, hash, email));
+    }
+
+    private User addUser(String username, String passwordHash, String email) {
+        UserIndexes current = this.indexes;
+        if (current.byUsername.containsKey(username)) {
             return null;
         }
 
         try {
-            // 生成新用户ID
-            int maxId = users.stream()
-                    .mapToInt(User::getId)
-                    .max()
-                    .orElse(0);
-
             // 创建新用户
             User newUser = new User();
-            newUser.setId(maxId + 1);
             newUser.setUsername(username);
-            newUser.setPassword(encryptPassword(password));
+            newUser.setPassword(passwordHash);
             newUser.setEmail(email);
             newUser.setRole("user");
             newUser.setRegisterTime(getCurrentTime());
 
-            users.add(newUser);
-            dataManager.saveUsers(users);
+            // 原子地占用用户名，并发注册同一用户名时只有一个成功
+            if (current.byUsername.putIfAbsent(username, newUser) != null) {
+                return null;
+            }
+
+            // 生成新用户ID
+            newUser.setId(idGenerator.nextInt(IdGenerator.USER));
+            current.byId.put(newUser.getId(), newUser);
+            dataManager.saveUser(newUser);
 
             return newUser;
         } catch (Exception e) {
             System.err.println("Failed to register user: " + e.getMessage());
+            current.byUsername.remove(username);
             return null;
         }
     }
 
     /**
-     * 用户登录
+     * 用户登录，用户名或密码错误时结果为null
      */
-    public User login(String username, String password) {
-        String encryptedPassword = encryptPassword(password);
+    public CompletableFuture<User> login(String username, String password) {
+        User user = getUserByUsername(username);
+        if (user == null) {
+            // 用户不存在时同样做一次完整代价的校验，响应时间不泄露用户名是否存在
+            return passwordHasher.verifyUnknown(password).thenApply(verification -> null);
+        }
 
-        return users.stream()
-                .filter(u -> u.getUsername().equals(username))
-                .filter(u -> u.getPassword().equals(encryptedPassword))
-                .findFirst()
-                .orElse(null);
+        String stored = user.getPassword();
+        return passwordHasher.verify(password, stored).thenApply(verification -> {
+            if (!verification.matches()) {
+                return null;
+            }
+            if (verification.getUpgradedHash() != null) {
+                replacePasswordHash(user, stored, verification.getUpgradedHash());
+            }
+            return user;
+        });
+    }
+
+    /**
+     * 密码哈希仍是 expected 时替换为新哈希，期间密码已被修改则放弃
+     */
+    private boolean replacePasswordHash(User user, String expected, String replacement) {
+        monitor.lock();
+        try {
+            if (!expected.equals(user.getPassword())) {
+                return false;
+            }
+            user.setPassword(replacement);
+            dataManager.saveUser(user);
+            return true;
+        } catch (Exception e) {
+            System.err.println("Failed to update password hash: " + e.getMessage());
+            return false;
+        } finally {
+            monitor.unlock();
+        }
     }
 
     /**
      * 检查用户名是否存在
      */
     public boolean isUsernameExists(String username) {
-        return users.stream()
-                .anyMatch(u -> u.getUsername().equals(username));
+        return username != null && indexes.byUsername.containsKey(username);
     }
 
     /**
      * 根据ID获取用户
      */
     public User getUserById(int id) {
-        return users.stream()
-                .filter(u -> u.getId() == id)
-                .findFirst()
-                .orElse(null);
+        return indexes.byId.get(id);
     }
 
     /**
      * 根据用户名获取用户
      */
     public User getUserByUsername(String username) {
-        return users.stream()
-                .filter(u -> u.getUsername().equals(username))
-                .findFirst()
-                .orElse(null);
+        if (username == null) {
+            return null;
+        }
+        User user = indexes.byUsername.get(username);
+        // 注册过程中ID尚未分配的用户不可见
+        return user != null && user.getId() != 0 ? user : null;
     }
 
     /**
-     * 获取所有用户
+     * 获取所有用户（按ID排序）
      */
     public List<User> getAllUsers() {
-        return new ArrayList<>(users);
+        List<User> all = new ArrayList<>(indexes.byId.values());
+        all.sort(Comparator.comparingInt(User::getId));
+        return all;
     }
 
     /**
      * 更新用户信息
      */
-    public synchronized boolean updateUser(User updatedUser) {
+    public boolean updateUser(User updatedUser) {
+        monitor.lock();
         try {
-            for (int i = 0; i < users.size(); i++) {
-                if (users.get(i).getId() == updatedUser.getId()) {
-                    users.set(i, updatedUser);
-                    dataManager.saveUsers(users);
-                    return true;
+            UserIndexes current = this.indexes;
+            User existing = current.byId.get(updatedUser.getId());
+            if (existing == null) {
+                return false;
+            }
+
+            // 用户名变更时先占用新用户名
+            String oldUsername = existing.getUsername();
+            String newUsername = updatedUser.getUsername();
+            if (!oldUsername.equals(newUsername)) {
+                if (current.byUsername.putIfAbsent(newUsername, updatedUser) != null) {
+                    return false;
                 }
+                current.byUsername.remove(oldUsername, existing);
+            } else {
+                current.byUsername.put(newUsername, updatedUser);
             }
-            return false;
+
+            current.byId.put(updatedUser.getId(), updatedUser);
+            dataManager.saveUser(updatedUser);
+            return true;
         } catch (Exception e) {
             System.err.println("Failed to update user: " + e.getMessage());
             return false;
+        } finally {
+            monitor.unlock();
         }
     }
 
     /**
      * 删除用户
      */
-    public synchronized boolean deleteUser(int id) {
+    public boolean deleteUser(int id) {
+        monitor.lock();
         try {
-            boolean removed = users.removeIf(u -> u.getId() == id);
-            if (removed) {
-                dataManager.saveUsers(users);
+            UserIndexes current = this.indexes;
+            User removed = current.byId.remove(id);
+            if (removed == null) {
+                return false;
             }
-            return removed;
+            current.byUsername.remove(removed.getUsername(), removed);
+            dataManager.removeUser(id);
+            return true;
         } catch (Exception e) {
             System.err.println("Failed to delete user: " + e.getMessage());
             return false;
+        } finally {
+            monitor.unlock();
         }
     }
 
     /**
      * 修改密码
+     * 校验原密码和计算新哈希都在锁外进行，替换时原哈希已变化（并发修改）则失败
      */
-    public synchronized boolean changePassword(int userId, String oldPassword, String newPassword) {
-        try {
-            User user = getUserById(userId);
-            if (user == null) {
-                return false;
-            }
+    public CompletableFuture<Boolean> changePassword(int userId, String oldPassword, String newPassword) {
+        User user = getUserById(userId);
+        if (user == null) {
+            return CompletableFuture.completedFuture(false);
+        }
 
-            String encryptedOldPassword = encryptPassword(oldPassword);
-            if (!user.getPassword().equals(encryptedOldPassword)) {
-                return false;
+        String stored = user.getPassword();
+        return passwordHasher.verify(oldPassword, stored).thenCompose(verification -> {
+            if (!verification.matches()) {
+                return CompletableFuture.completedFuture(false);
             }
+            return passwordHasher.hash(newPassword)
+                    .thenApply(hash -> replacePasswordHash(user, stored, hash));
+        });
+    }
 
-            user.setPassword(encryptPassword(newPassword));
-            dataManager.saveUsers(users);
-            return true;
-        } catch (Exception e) {
-            System.err.println("Failed to change password: " + e.getMessage());
-            return false;
-        }
+    /**
+     * 获取当前时间
+     */
+    private String getCurrentTime() {
+        return LocalDateTime.now().format(TIME_FORMAT);
     }
 
     /**
-     * MD5加密密码
+     * 用户列表快照（供持久化使用）
      */
-    public static String encryptPassword(String password) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            byte[] bytes = md.digest(password.getBytes());
-            StringBuilder sb = new StringBuilder();
-            for (byte b : bytes) {
-                sb.append(String.format("%02x", b));
-            }
-            return sb.toString();
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("MD5 encryption failed", e);
-        }
+    private List<User> snapshot() {
+        return getAllUsers();
     }
 
     /**
-     * 获取当前时间
+     * 根据用户列表建立索引，ID序列推进到现有最大ID之后
      */
-    private String getCurrentTime() {
-        LocalDateTime now = LocalDateTime.now();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-        return now.format(formatter);
+    private UserIndexes buildIndexes(List<User> loaded) {
+        UserIndexes built = new UserIndexes();
+        int maxId = 0;
+        if (loaded != null) {
+            for (User user : loaded) {
+                built.byId.put(user.getId(), user);
+                built.byUsername.put(user.getUsername(), user);
+                maxId = Math.max(maxId, user.getId());
+            }
+        }
+        idGenerator.advanceTo(IdGenerator.USER, maxId);
+        return built;
     }
 
     /**
      * 刷新用户列表
      */
     public void refresh() {
-        this.users = dataManager.loadUsers();
-        if (this.users == null) {
-            this.users = new ArrayList<>();
-        }
+        this.indexes = buildIndexes(dataManager.loadUsers());
+    }
+
+    /**
+     * 用户索引：ID索引和用户名索引
+     */
+    private static class UserIndexes {
+        private final Map<Integer, User> byId = new ConcurrentHashMap<>();
+        private final Map<String, User> byUsername = new ConcurrentHashMap<>();
     }
 }
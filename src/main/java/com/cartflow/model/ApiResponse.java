@@ -0,0 +1,119 @@
+package com.cartflow.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * 统一响应结构 {"success":..., "message":..., "data":...}
+ * 分页接口额外带 total/page/size（按页码）或 nextCursor/hasMore（按游标），未设置的字段不输出
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ApiResponse<T> {
+    private boolean success;
+    private String message;
+    private T data;
+    private Integer total;
+    private Integer page;
+    private Integer size;
+    private String nextCursor;
+    private Boolean hasMore;
+
+    public ApiResponse() {
+    }
+
+    public static <T> ApiResponse<T> ok(T data) {
+        ApiResponse<T> response = new ApiResponse<>();
+        response.success = true;
+        response.data = data;
+        return response;
+    }
+
+    public static <T> ApiResponse<T> fail(String message) {
+        ApiResponse<T> response = new ApiResponse<>();
+        response.message = message;
+        return response;
+    }
+
+    /**
+     * 附加按页码分页的信息
+     */
+    public ApiResponse<T> paged(int total, int page, int size) {
+        this.total = total;
+        this.page = page;
+        this.size = size;
+        return this;
+    }
+
+    /**
+     * 附加按游标分页的信息
+     */
+    public ApiResponse<T> cursor(String nextCursor, boolean hasMore) {
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+        return this;
+    }
+
+    // Getters and Setters
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public T getData() {
+        return data;
+    }
+
+    public void setData(T data) {
+        this.data = data;
+    }
+
+    public Integer getTotal() {
+        return total;
+    }
+
+    public void setTotal(Integer total) {
+        this.total = total;
+    }
+
+    public Integer getPage() {
+        return page;
+    }
+
+    public void setPage(Integer page) {
+        this.page = page;
+    }
+
+    public Integer getSize() {
+        return size;
+    }
+
+    public void setSize(Integer size) {
+        this.size = size;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public Boolean getHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(Boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+}
@@ -0,0 +1,51 @@
+package com.cartflow.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 游标分页结果
+ * nextCursor为下一页的起始游标，没有更多数据时为null
+ */
+public class CursorPage<T> {
+    private List<T> items;
+    private String nextCursor;
+
+    public CursorPage() {
+        this.items = new ArrayList<>();
+    }
+
+    public CursorPage(List<T> items, String nextCursor) {
+        this.items = items != null ? items : new ArrayList<>();
+        this.nextCursor = nextCursor;
+    }
+
+    // Getters and Setters
+    public List<T> getItems() {
+        return items;
+    }
+
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean isHasMore() {
+        return nextCursor != null;
+    }
+
+    @Override
+    public String toString() {
+        return "CursorPage{" +
+                "items=" + items.size() +
+                ", nextCursor='" + nextCursor + '\'' +
+                '}';
+    }
+}
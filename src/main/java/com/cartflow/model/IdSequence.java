@@ -0,0 +1,34 @@
+package com.cartflow.model;
+
+/**
+ * ID序列的持久化状态：序列名和已分配出去的最大ID（号段上限）
+ */
+public class IdSequence {
+    private String name;
+    private long limit;
+
+    public IdSequence() {
+    }
+
+    public IdSequence(String name, long limit) {
+        this.name = name;
+        this.limit = limit;
+    }
+
+    // Getters and Setters
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public long getLimit() {
+        return limit;
+    }
+
+    public void setLimit(long limit) {
+        this.limit = limit;
+    }
+}
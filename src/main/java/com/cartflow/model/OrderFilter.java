@@ -0,0 +1,65 @@
+package com.cartflow.model;
+
+/**
+ * 订单查询条件，为null的条件不参与过滤
+ * from/to 为下单时间区间 [from, to)，格式 yyyy-MM-dd 或 yyyy-MM-dd HH:mm:ss
+ */
+public class OrderFilter {
+    private String status;
+    private Integer userId;
+    private String from;
+    private String to;
+
+    public OrderFilter() {
+    }
+
+    public OrderFilter(String status, Integer userId, String from, String to) {
+        this.status = status;
+        this.userId = userId;
+        this.from = from;
+        this.to = to;
+    }
+
+    // Getters and Setters
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Integer getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Integer userId) {
+        this.userId = userId;
+    }
+
+    public String getFrom() {
+        return from;
+    }
+
+    public void setFrom(String from) {
+        this.from = from;
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public void setTo(String to) {
+        this.to = to;
+    }
+
+    @Override
+    public String toString() {
+        return "OrderFilter{" +
+                "status='" + status + '\'' +
+                ", userId=" + userId +
+                ", from='" + from + '\'' +
+                ", to='" + to + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,84 @@
+package com.cartflow.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 分页结果
+ * total 为null表示未统计总数（如带时间条件的订单查询），此时由 hasMore 判断是否还有下一页
+ */
+public class PageResult<T> {
+    private List<T> items;
+    private Integer total;
+    private int page;
+    private int size;
+    private Boolean hasMore;
+
+    public PageResult() {
+        this.items = new ArrayList<>();
+    }
+
+    public PageResult(List<T> items, Integer total, int page, int size) {
+        this.items = items != null ? items : new ArrayList<>();
+        this.total = total;
+        this.page = page;
+        this.size = size;
+    }
+
+    public PageResult(List<T> items, Integer total, int page, int size, boolean hasMore) {
+        this(items, total, page, size);
+        this.hasMore = hasMore;
+    }
+
+    // Getters and Setters
+    public List<T> getItems() {
+        return items;
+    }
+
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+
+    public Integer getTotal() {
+        return total;
+    }
+
+    public void setTotal(Integer total) {
+        this.total = total;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public Boolean getHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(Boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+    @Override
+    public String toString() {
+        return "PageResult{" +
+                "items=" + items.size() +
+                ", total=" + total +
+                ", page=" + page +
+                ", size=" + size +
+                ", hasMore=" + hasMore +
+                '}';
+    }
+}
@@ -1,13 +1,16 @@
 package com.cartflow.model;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * 商品实体类
+ * 库存使用原子计数器，扣减库存无需加锁（JSON中仍是普通数字）
  */
 public class Product {
     private int id;
     private String name;
     private double price;
-    private int stock;
+    private AtomicInteger stock = new AtomicInteger();
     private String category;
     private String description;
     private String imageUrl;
@@ -21,7 +24,7 @@ public class Product {
         this.id = id;
         this.name = name;
         this.price = price;
-        this.stock = stock;
+        this.stock = new AtomicInteger(stock);
         this.category = category;
         this.description = description;
         this.imageUrl = imageUrl;
@@ -54,11 +57,33 @@ public class Product {
     }
 
     public int getStock() {
-        return stock;
+        return stock.get();
     }
 
     public void setStock(int stock) {
-        this.stock = stock;
+        this.stock.set(stock);
+    }
+
+    /**
+     * 库存充足时原子扣减（CAS），不足时不做修改并返回false
+     */
+    public boolean tryReduceStock(int quantity) {
+        while (true) {
+            int current = stock.get();
+            if (current < quantity) {
+                return false;
+            }
+            if (stock.compareAndSet(current, current - quantity)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 原子增加库存
+     */
+    public void addStock(int quantity) {
+        stock.addAndGet(quantity);
     }
 
     public String getCategory() {
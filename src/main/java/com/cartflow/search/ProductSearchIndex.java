@@ -0,0 +1,263 @@
+package com.cartflow.search;
+
+import com.cartflow.model.Product;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 商品倒排索引
+ * 词元 -> (商品ID -> 加权词频)，按BM25打分排序。
+ * 名称、分类、描述三个字段按不同权重计入词频；查询词之间是"与"的关系，
+ * 拉丁单词支持前缀匹配（"iph" 可以命中 "iphone"）。
+ * 每次修改索引都会递增版本号，搜索结果缓存据此失效。
+ */
+public class ProductSearchIndex {
+    private static final int NAME_WEIGHT = 3;
+    private static final int CATEGORY_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final NavigableMap<String, Map<Integer, Integer>> postings = new TreeMap<>();
+    private final Map<Integer, Document> documents = new HashMap<>();
+    private long totalLength;
+    private volatile long version;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 加入或替换一个商品的索引
+     */
+    public void index(Product product) {
+        Document document = analyze(product);
+
+        lock.writeLock().lock();
+        try {
+            removeDocument(product.getId());
+            for (Map.Entry<String, Integer> entry : document.termFrequencies.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), t -> new HashMap<>())
+                        .put(product.getId(), entry.getValue());
+            }
+            documents.put(product.getId(), document);
+            totalLength += document.length;
+            version++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 从索引中移除商品
+     */
+    public void remove(int productId) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(productId);
+            version++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 用给定商品重建整个索引
+     */
+    public void rebuild(Collection<Product> products) {
+        List<Document> analyzed = new ArrayList<>(products.size());
+        for (Product product : products) {
+            analyzed.add(analyze(product));
+        }
+
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            totalLength = 0;
+            for (Document document : analyzed) {
+                for (Map.Entry<String, Integer> entry : document.termFrequencies.entrySet()) {
+                    postings.computeIfAbsent(entry.getKey(), t -> new HashMap<>())
+                            .put(document.productId, entry.getValue());
+                }
+                documents.put(document.productId, document);
+                totalLength += document.length;
+            }
+            version++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 搜索并返回按相关度排序的一页商品ID
+     *
+     * @param offset 跳过的结果数
+     * @param limit  返回的最大结果数，小于0表示不限
+     */
+    public SearchResult search(String query, int offset, int limit) {
+        return search(new LinkedHashSet<>(Tokenizer.tokenizeQuery(query)), offset, limit);
+    }
+
+    /**
+     * 按已分好的查询词搜索
+     */
+    SearchResult search(Set<String> queryTerms, int offset, int limit) {
+        if (queryTerms.isEmpty()) {
+            return new SearchResult(new ArrayList<>(), 0);
+        }
+
+        lock.readLock().lock();
+        try {
+            Map<Integer, Double> scores = null;
+            double averageLength = documents.isEmpty() ? 1 : (double) totalLength / documents.size();
+
+            for (String term : queryTerms) {
+                Map<Integer, Double> termScores = scoreTerm(term, averageLength);
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    scores = intersect(scores, termScores);
+                }
+                if (scores.isEmpty()) {
+                    return new SearchResult(new ArrayList<>(), 0);
+                }
+            }
+
+            List<Map.Entry<Integer, Double>> ranked = new ArrayList<>(scores.entrySet());
+            ranked.sort((a, b) -> {
+                int byScore = Double.compare(b.getValue(), a.getValue());
+                return byScore != 0 ? byScore : Integer.compare(a.getKey(), b.getKey());
+            });
+
+            int from = Math.min(Math.max(offset, 0), ranked.size());
+            int to = limit < 0 ? ranked.size() : Math.min(from + limit, ranked.size());
+            List<Integer> productIds = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                productIds.add(ranked.get(i).getKey());
+            }
+            return new SearchResult(productIds, ranked.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 索引版本号，在写锁内递增；修改之后读到的版本号一定比修改之前读到的大
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * 已索引的商品数
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 单个查询词的BM25得分；拉丁单词展开为所有以它为前缀的词元，取最高分
+     */
+    private Map<Integer, Double> scoreTerm(String term, double averageLength) {
+        Map<Integer, Double> termScores = new HashMap<>();
+        Map<String, Map<Integer, Integer>> matches = Tokenizer.isCjkToken(term)
+                ? exactMatch(term)
+                : postings.subMap(term, true, term + Character.MAX_VALUE, false);
+
+        int documentCount = documents.size();
+        for (Map<Integer, Integer> postingList : matches.values()) {
+            double idf = Math.log(1 + (documentCount - postingList.size() + 0.5) / (postingList.size() + 0.5));
+            for (Map.Entry<Integer, Integer> posting : postingList.entrySet()) {
+                Document document = documents.get(posting.getKey());
+                double tf = posting.getValue();
+                double norm = tf + K1 * (1 - B + B * document.length / averageLength);
+                double score = idf * tf * (K1 + 1) / norm;
+                termScores.merge(posting.getKey(), score, Math::max);
+            }
+        }
+        return termScores;
+    }
+
+    private Map<String, Map<Integer, Integer>> exactMatch(String term) {
+        Map<String, Map<Integer, Integer>> matches = new HashMap<>();
+        Map<Integer, Integer> postingList = postings.get(term);
+        if (postingList != null) {
+            matches.put(term, postingList);
+        }
+        return matches;
+    }
+
+    private static Map<Integer, Double> intersect(Map<Integer, Double> left, Map<Integer, Double> right) {
+        Map<Integer, Double> smaller = left.size() <= right.size() ? left : right;
+        Map<Integer, Double> larger = smaller == left ? right : left;
+        Map<Integer, Double> result = new HashMap<>();
+        for (Map.Entry<Integer, Double> entry : smaller.entrySet()) {
+            Double other = larger.get(entry.getKey());
+            if (other != null) {
+                result.put(entry.getKey(), entry.getValue() + other);
+            }
+        }
+        return result;
+    }
+
+    private void removeDocument(int productId) {
+        Document document = documents.remove(productId);
+        if (document == null) {
+            return;
+        }
+
+        totalLength -= document.length;
+        for (String term : document.termFrequencies.keySet()) {
+            Map<Integer, Integer> postingList = postings.get(term);
+            if (postingList != null) {
+                postingList.remove(productId);
+                if (postingList.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    private static Document analyze(Product product) {
+        Document document = new Document(product.getId());
+        document.addField(product.getName(), NAME_WEIGHT);
+        document.addField(product.getCategory(), CATEGORY_WEIGHT);
+        document.addField(product.getDescription(), DESCRIPTION_WEIGHT);
+        return document;
+    }
+
+    /**
+     * 单个商品的分词结果
+     */
+    private static class Document {
+        private final int productId;
+        private final Map<String, Integer> termFrequencies = new HashMap<>();
+        private int length;
+
+        Document(int productId) {
+            this.productId = productId;
+        }
+
+        void addField(String text, int weight) {
+            for (String token : Tokenizer.tokenize(text)) {
+                termFrequencies.merge(token, weight, Integer::sum);
+                length += weight;
+            }
+        }
+    }
+}
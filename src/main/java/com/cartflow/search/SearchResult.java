@@ -0,0 +1,24 @@
+package com.cartflow.search;
+
+import java.util.List;
+
+/**
+ * 搜索结果：当前页的商品ID（按相关度排序）和命中总数
+ */
+public class SearchResult {
+    private final List<Integer> productIds;
+    private final int total;
+
+    public SearchResult(List<Integer> productIds, int total) {
+        this.productIds = productIds;
+        this.total = total;
+    }
+
+    public List<Integer> getProductIds() {
+        return productIds;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+}
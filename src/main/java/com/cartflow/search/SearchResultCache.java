@@ -0,0 +1,119 @@
+package com.cartflow.search;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 搜索结果缓存
+ * 查询先归一化为排好序、去重的查询词（大小写、标点、词序不同的查询共用一条缓存），
+ * 缓存完整的按相关度排序的商品ID，各页从中截取。
+ * 缓存键带索引版本号，索引一旦修改旧结果即不再命中，并在下次搜索时整体清空；
+ * 容量按缓存的商品ID总数限制，淘汰策略为 W-TinyLFU，另有过期时间兜底。
+ */
+public class SearchResultCache {
+
+    private final ProductSearchIndex index;
+    private final Cache<Key, int[]> cache;
+    private volatile long cachedVersion;
+
+    /**
+     * @param maxResultIds 缓存的商品ID总数上限（每个ID约4字节）
+     * @param ttlSeconds   缓存过期时间
+     */
+    public SearchResultCache(ProductSearchIndex index, long maxResultIds, long ttlSeconds) {
+        this.index = index;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxResultIds)
+                .weigher((Key key, int[] ids) -> ids.length + 1)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * 注册命中、未命中、淘汰次数等指标（cache.gets / cache.evictions / cache.size）
+     */
+    public void bind(MeterRegistry registry, String name) {
+        CaffeineCacheMetrics.monitor(registry, cache, name);
+    }
+
+    /**
+     * 搜索并返回按相关度排序的一页商品ID，参数含义同 ProductSearchIndex.search
+     */
+    public SearchResult search(String query, int offset, int limit) {
+        Set<String> terms = new TreeSet<>(Tokenizer.tokenizeQuery(query));
+        if (terms.isEmpty()) {
+            return new SearchResult(new ArrayList<>(), 0);
+        }
+
+        long version = index.version();
+        if (version != cachedVersion) {
+            cache.invalidateAll();
+            cachedVersion = version;
+        }
+
+        int[] ranked = cache.get(new Key(String.join(" ", terms), version), key -> rank(terms));
+        int from = Math.min(Math.max(offset, 0), ranked.length);
+        int to = limit < 0 ? ranked.length : Math.min(from + limit, ranked.length);
+        List<Integer> productIds = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            productIds.add(ranked[i]);
+        }
+        return new SearchResult(productIds, ranked.length);
+    }
+
+    /**
+     * 归一化的查询：排好序、去重的查询词，以空格连接；结果相同的查询归一化后相同
+     */
+    public static String normalize(String query) {
+        return String.join(" ", new TreeSet<>(Tokenizer.tokenizeQuery(query)));
+    }
+
+    private int[] rank(Set<String> terms) {
+        List<Integer> productIds = index.search(terms, 0, -1).getProductIds();
+        int[] ranked = new int[productIds.size()];
+        for (int i = 0; i < ranked.length; i++) {
+            ranked[i] = productIds.get(i);
+        }
+        return ranked;
+    }
+
+    /**
+     * 归一化的查询词 + 索引版本号
+     */
+    private static final class Key {
+        private final String terms;
+        private final long version;
+
+        Key(String terms, long version) {
+            this.terms = terms;
+            this.version = version;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return version == other.version && terms.equals(other.terms);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(terms, version);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.cartflow.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 分词器
+ * 拉丁字母和数字按连续片段切成小写单词；
+ * 中日韩文字切成二元组（bigram），建索引时额外保留单字，以支持单字查询。
+ */
+public final class Tokenizer {
+
+    private Tokenizer() {
+    }
+
+    /**
+     * 建索引用的分词：单词 + 中文二元组 + 中文单字
+     */
+    public static List<String> tokenize(String text) {
+        return split(text, true);
+    }
+
+    /**
+     * 查询用的分词：单词 + 中文二元组；只有一个汉字的片段退化为单字
+     */
+    public static List<String> tokenizeQuery(String text) {
+        return split(text, false);
+    }
+
+    /**
+     * 是否中日韩文字词元（不参与前缀匹配）
+     */
+    public static boolean isCjkToken(String token) {
+        return !token.isEmpty() && isCjk(token.codePointAt(0));
+    }
+
+    private static List<String> split(String text, boolean withUnigrams) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+
+        StringBuilder word = new StringBuilder();
+        int cjkStart = -1;
+        int i = 0;
+        while (i < text.length()) {
+            int cp = text.codePointAt(i);
+            if (isCjk(cp)) {
+                flushWord(word, tokens);
+                if (cjkStart < 0) {
+                    cjkStart = i;
+                }
+            } else {
+                if (cjkStart >= 0) {
+                    emitCjk(text, cjkStart, i, withUnigrams, tokens);
+                    cjkStart = -1;
+                }
+                if (Character.isLetterOrDigit(cp)) {
+                    word.appendCodePoint(Character.toLowerCase(cp));
+                } else {
+                    flushWord(word, tokens);
+                }
+            }
+            i += Character.charCount(cp);
+        }
+
+        if (cjkStart >= 0) {
+            emitCjk(text, cjkStart, text.length(), withUnigrams, tokens);
+        }
+        flushWord(word, tokens);
+        return tokens;
+    }
+
+    private static void flushWord(StringBuilder word, List<String> tokens) {
+        if (word.length() > 0) {
+            tokens.add(word.toString());
+            word.setLength(0);
+        }
+    }
+
+    private static void emitCjk(String text, int start, int end, boolean withUnigrams, List<String> tokens) {
+        int prev = -1;
+        int i = start;
+        int count = 0;
+        while (i < end) {
+            int cp = text.codePointAt(i);
+            int next = i + Character.charCount(cp);
+            if (withUnigrams) {
+                tokens.add(text.substring(i, next));
+            }
+            if (prev >= 0) {
+                tokens.add(text.substring(prev, next));
+            }
+            prev = i;
+            i = next;
+            count++;
+        }
+
+        if (!withUnigrams && count == 1) {
+            tokens.add(text.substring(start, end));
+        }
+    }
+
+    private static boolean isCjk(int cp) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(cp);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+}
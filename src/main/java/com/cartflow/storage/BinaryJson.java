@@ -0,0 +1,517 @@
+package com.cartflow.storage;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+/**
+ * 二进制快照记录的编码
+ * 把Gson的JsonWriter/JsonReader事件直接编码为单字节标记 + 定长数值，字符串（含字段名）只写入字符串表中的编号，
+ * 因此仍然复用Gson为实体类生成的TypeAdapter，但读取时不再需要词法分析和数字/字符串的文本解析。
+ *
+ * 限制：Gson读取Map时依赖JsonReader的内部状态，实体中不能包含Map类型的字段。
+ */
+final class BinaryJson {
+    static final byte BEGIN_OBJECT = 1;
+    static final byte END_OBJECT = 2;
+    static final byte BEGIN_ARRAY = 3;
+    static final byte END_ARRAY = 4;
+    static final byte NAME = 5;
+    static final byte STRING = 6;
+    static final byte NULL = 7;
+    static final byte TRUE = 8;
+    static final byte FALSE = 9;
+    static final byte LONG = 10;
+    static final byte DOUBLE = 11;
+    /** 非long/double的数字（如BigDecimal），以原始文本存入字符串表 */
+    static final byte NUMBER = 12;
+
+    private static final int END_OF_RECORD = -1;
+
+    private BinaryJson() {
+    }
+
+    /**
+     * 编码器：把一条记录写入out，遇到新字符串时追加到字符串表
+     * 与Gson默认行为一致，值为null的字段不写出，读取时保留字段的默认值
+     */
+    static final class Encoder extends JsonWriter {
+        private static final Writer UNWRITABLE_WRITER = new Writer() {
+            @Override
+            public void write(char[] buffer, int offset, int counter) {
+                throw new AssertionError();
+            }
+
+            @Override
+            public void flush() {
+                throw new AssertionError();
+            }
+
+            @Override
+            public void close() {
+                throw new AssertionError();
+            }
+        };
+
+        private final DataOutputStream out;
+        private final Map<String, Integer> strings;
+        private String deferredName;
+
+        /**
+         * @param strings 字符串 -> 编号，编号按加入顺序递增，写完所有记录后按此顺序写出字符串表
+         */
+        Encoder(DataOutputStream out, Map<String, Integer> strings) {
+            super(UNWRITABLE_WRITER);
+            this.out = out;
+            this.strings = strings;
+            setSerializeNulls(false);
+        }
+
+        @Override
+        public JsonWriter beginArray() throws IOException {
+            writeDeferredName();
+            out.writeByte(BEGIN_ARRAY);
+            return this;
+        }
+
+        @Override
+        public JsonWriter endArray() throws IOException {
+            out.writeByte(END_ARRAY);
+            return this;
+        }
+
+        @Override
+        public JsonWriter beginObject() throws IOException {
+            writeDeferredName();
+            out.writeByte(BEGIN_OBJECT);
+            return this;
+        }
+
+        @Override
+        public JsonWriter endObject() throws IOException {
+            if (deferredName != null) {
+                throw new IllegalStateException("Dangling name: " + deferredName);
+            }
+            out.writeByte(END_OBJECT);
+            return this;
+        }
+
+        @Override
+        public JsonWriter name(String name) throws IOException {
+            if (name == null) {
+                throw new NullPointerException("name == null");
+            }
+            if (deferredName != null) {
+                throw new IllegalStateException("Dangling name: " + deferredName);
+            }
+            deferredName = name;
+            return this;
+        }
+
+        @Override
+        public JsonWriter value(String value) throws IOException {
+            if (value == null) {
+                return nullValue();
+            }
+            writeDeferredName();
+            writeString(STRING, value);
+            return this;
+        }
+
+        @Override
+        public JsonWriter jsonValue(String value) {
+            throw new UnsupportedOperationException("Raw JSON values are not supported in binary snapshots");
+        }
+
+        @Override
+        public JsonWriter nullValue() throws IOException {
+            if (deferredName != null) {
+                if (!getSerializeNulls()) {
+                    deferredName = null;
+                    return this;
+                }
+                writeDeferredName();
+            }
+            out.writeByte(NULL);
+            return this;
+        }
+
+        @Override
+        public JsonWriter value(boolean value) throws IOException {
+            writeDeferredName();
+            out.writeByte(value ? TRUE : FALSE);
+            return this;
+        }
+
+        @Override
+        public JsonWriter value(Boolean value) throws IOException {
+            return value == null ? nullValue() : value(value.booleanValue());
+        }
+
+        @Override
+        public JsonWriter value(float value) throws IOException {
+            return value((double) value);
+        }
+
+        @Override
+        public JsonWriter value(double value) throws IOException {
+            writeDeferredName();
+            out.writeByte(DOUBLE);
+            out.writeDouble(value);
+            return this;
+        }
+
+        @Override
+        public JsonWriter value(long value) throws IOException {
+            writeDeferredName();
+            out.writeByte(LONG);
+            out.writeLong(value);
+            return this;
+        }
+
+        @Override
+        public JsonWriter value(Number value) throws IOException {
+            if (value == null) {
+                return nullValue();
+            }
+            if (value instanceof Integer || value instanceof Long || value instanceof Short
+                    || value instanceof Byte || value instanceof AtomicInteger || value instanceof AtomicLong) {
+                return value(value.longValue());
+            }
+            if (value instanceof Double || value instanceof Float) {
+                return value(value.doubleValue());
+            }
+            writeDeferredName();
+            writeString(NUMBER, value.toString());
+            return this;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        private void writeDeferredName() throws IOException {
+            if (deferredName != null) {
+                writeString(NAME, deferredName);
+                deferredName = null;
+            }
+        }
+
+        private void writeString(byte tag, String value) throws IOException {
+            Integer id = strings.get(value);
+            if (id == null) {
+                id = strings.size();
+                strings.put(value, id);
+            }
+            out.writeByte(tag);
+            writeVarInt(out, id);
+        }
+    }
+
+    /**
+     * 解码器：从映射的缓冲区中读取一条记录，只使用绝对位置读取，多个解码器可以共享同一个缓冲区
+     */
+    static final class Decoder extends JsonReader {
+        private static final Reader UNREADABLE_READER = new Reader() {
+            @Override
+            public int read(char[] buffer, int offset, int count) {
+                throw new AssertionError();
+            }
+
+            @Override
+            public void close() {
+                throw new AssertionError();
+            }
+        };
+
+        private final ByteBuffer buffer;
+        private final int end;
+        private final IntFunction<String> strings;
+        private int position;
+        private int peeked = Integer.MIN_VALUE;
+
+        /**
+         * @param start   记录起始位置
+         * @param end     记录结束位置（不含）
+         * @param strings 字符串表，按编号取字符串
+         */
+        Decoder(ByteBuffer buffer, int start, int end, IntFunction<String> strings) {
+            super(UNREADABLE_READER);
+            this.buffer = buffer;
+            this.position = start;
+            this.end = end;
+            this.strings = strings;
+        }
+
+        @Override
+        public void beginArray() {
+            consume(BEGIN_ARRAY);
+        }
+
+        @Override
+        public void endArray() {
+            consume(END_ARRAY);
+        }
+
+        @Override
+        public void beginObject() {
+            consume(BEGIN_OBJECT);
+        }
+
+        @Override
+        public void endObject() {
+            consume(END_OBJECT);
+        }
+
+        @Override
+        public boolean hasNext() {
+            int tag = peekTag();
+            return tag != END_OBJECT && tag != END_ARRAY && tag != END_OF_RECORD;
+        }
+
+        @Override
+        public JsonToken peek() {
+            switch (peekTag()) {
+                case BEGIN_OBJECT:
+                    return JsonToken.BEGIN_OBJECT;
+                case END_OBJECT:
+                    return JsonToken.END_OBJECT;
+                case BEGIN_ARRAY:
+                    return JsonToken.BEGIN_ARRAY;
+                case END_ARRAY:
+                    return JsonToken.END_ARRAY;
+                case NAME:
+                    return JsonToken.NAME;
+                case STRING:
+                    return JsonToken.STRING;
+                case NULL:
+                    return JsonToken.NULL;
+                case TRUE:
+                case FALSE:
+                    return JsonToken.BOOLEAN;
+                case LONG:
+                case DOUBLE:
+                case NUMBER:
+                    return JsonToken.NUMBER;
+                case END_OF_RECORD:
+                    return JsonToken.END_DOCUMENT;
+                default:
+                    throw new IllegalStateException("Unknown tag " + peeked + " at " + position);
+            }
+        }
+
+        @Override
+        public String nextName() {
+            consume(NAME);
+            return strings.apply(readVarInt());
+        }
+
+        @Override
+        public String nextString() {
+            int tag = peekTag();
+            switch (tag) {
+                case STRING:
+                case NUMBER:
+                    consume(tag);
+                    return strings.apply(readVarInt());
+                case LONG:
+                    consume(tag);
+                    return Long.toString(readLong());
+                case DOUBLE:
+                    consume(tag);
+                    return Double.toString(readDouble());
+                default:
+                    throw unexpected("STRING");
+            }
+        }
+
+        @Override
+        public boolean nextBoolean() {
+            int tag = peekTag();
+            if (tag != TRUE && tag != FALSE) {
+                throw unexpected("BOOLEAN");
+            }
+            consume(tag);
+            return tag == TRUE;
+        }
+
+        @Override
+        public void nextNull() {
+            consume(NULL);
+        }
+
+        @Override
+        public double nextDouble() {
+            int tag = peekTag();
+            switch (tag) {
+                case DOUBLE:
+                    consume(tag);
+                    return readDouble();
+                case LONG:
+                    consume(tag);
+                    return readLong();
+                case STRING:
+                case NUMBER:
+                    consume(tag);
+                    return Double.parseDouble(strings.apply(readVarInt()));
+                default:
+                    throw unexpected("NUMBER");
+            }
+        }
+
+        @Override
+        public long nextLong() {
+            int tag = peekTag();
+            switch (tag) {
+                case LONG:
+                    consume(tag);
+                    return readLong();
+                case DOUBLE:
+                    consume(tag);
+                    double value = readDouble();
+                    long result = (long) value;
+                    if (result != value) {
+                        throw new NumberFormatException("Expected a long but was " + value);
+                    }
+                    return result;
+                case STRING:
+                case NUMBER:
+                    consume(tag);
+                    return Long.parseLong(strings.apply(readVarInt()));
+                default:
+                    throw unexpected("NUMBER");
+            }
+        }
+
+        @Override
+        public int nextInt() {
+            long value = nextLong();
+            if ((int) value != value) {
+                throw new NumberFormatException("Expected an int but was " + value);
+            }
+            return (int) value;
+        }
+
+        @Override
+        public void skipValue() {
+            int depth = 0;
+            do {
+                int tag = peekTag();
+                switch (tag) {
+                    case BEGIN_OBJECT:
+                    case BEGIN_ARRAY:
+                        depth++;
+                        consume(tag);
+                        break;
+                    case END_OBJECT:
+                    case END_ARRAY:
+                        depth--;
+                        consume(tag);
+                        break;
+                    case NAME:
+                    case STRING:
+                    case NUMBER:
+                        consume(tag);
+                        readVarInt();
+                        break;
+                    case LONG:
+                    case DOUBLE:
+                        consume(tag);
+                        position += 8;
+                        break;
+                    case END_OF_RECORD:
+                        return;
+                    default:
+                        consume(tag);
+                        break;
+                }
+            } while (depth > 0);
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public String getPath() {
+            return "$";
+        }
+
+        @Override
+        public String getPreviousPath() {
+            return "$";
+        }
+
+        @Override
+        public String toString() {
+            return "BinaryJson.Decoder at " + position;
+        }
+
+        private int peekTag() {
+            if (peeked == Integer.MIN_VALUE) {
+                peeked = position < end ? buffer.get(position++) : END_OF_RECORD;
+            }
+            return peeked;
+        }
+
+        private void consume(int expected) {
+            if (peekTag() != expected) {
+                throw new IllegalStateException("Expected tag " + expected + " but was " + peeked + " at " + position);
+            }
+            peeked = Integer.MIN_VALUE;
+        }
+
+        private IllegalStateException unexpected(String expected) {
+            return new IllegalStateException("Expected " + expected + " but was " + peek() + " at " + position);
+        }
+
+        private long readLong() {
+            long value = buffer.getLong(position);
+            position += 8;
+            return value;
+        }
+
+        private double readDouble() {
+            double value = buffer.getDouble(position);
+            position += 8;
+            return value;
+        }
+
+        private int readVarInt() {
+            int result = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.get(position++);
+                result |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return result;
+        }
+    }
+
+    /**
+     * 变长整数（每字节7位，最高位表示后面还有字节），字符串编号大多只占1~3字节
+     */
+    static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+}
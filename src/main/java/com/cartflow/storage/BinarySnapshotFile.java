@@ -0,0 +1,278 @@
+package com.cartflow.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * 内存映射的二进制快照文件
+ * 写入方式与 SnapshotFile 相同（临时文件 -> 刷盘 -> 原子改名，保留 .prev），文件布局（大端序）：
+ *   文件头（32字节）: magic "CFBS" | version | 记录数 | 字符串数 | 字符串表偏移(long) | crc32 | 保留
+ *   记录区: 每条记录 = 长度(int) + BinaryJson 编码的内容
+ *   字符串表: 每个字符串 = 字节数(int) + UTF-8，记录中的字段名和字符串值都只存编号
+ * crc32 覆盖文件头之后的全部内容。
+ *
+ * 加载时只映射文件、校验并扫描长度前缀建立偏移表，返回的列表在 get 时才解码对应记录，
+ * 字符串也在第一次用到时才解码；启动耗时主要取决于读盘速度，解析期间不会同时持有整份文本。
+ * 返回的列表每次 get 都会重新解码，调用方应遍历一次并自行保存结果。
+ */
+public class BinarySnapshotFile<T> implements Snapshot<T> {
+    private static final int MAGIC = 0x43464253;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path file;
+    private final Path tempFile;
+    private final Path previousFile;
+    private final Path corruptFile;
+    private final TypeAdapter<T> adapter;
+
+    public BinarySnapshotFile(String filename, Class<T> type, Gson gson) {
+        this.file = Paths.get(filename);
+        this.tempFile = Paths.get(filename + ".tmp");
+        this.previousFile = Paths.get(filename + ".prev");
+        this.corruptFile = Paths.get(filename + ".corrupt");
+        this.adapter = gson.getAdapter(type);
+    }
+
+    /**
+     * 写出新一代快照：先写记录区，同时收集字符串，再写字符串表，最后回填文件头
+     */
+    @Override
+    public synchronized void write(Iterable<T> items, boolean pretty) throws IOException {
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        ByteArrayOutputStream record = new ByteArrayOutputStream(256);
+        BinaryJson.Encoder encoder = new BinaryJson.Encoder(new DataOutputStream(record), strings);
+
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.position(HEADER_SIZE);
+            CRC32 crc = new CRC32();
+            DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE), crc));
+
+            long position = HEADER_SIZE;
+            int recordCount = 0;
+            for (T item : items) {
+                record.reset();
+                adapter.write(encoder, item);
+                out.writeInt(record.size());
+                record.writeTo(out);
+                position += 4 + record.size();
+                recordCount++;
+            }
+
+            long stringTableOffset = position;
+            for (String value : strings.keySet()) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC)
+                    .putInt(VERSION)
+                    .putInt(recordCount)
+                    .putInt(strings.size())
+                    .putLong(stringTableOffset)
+                    .putInt((int) crc.getValue())
+                    .putInt(0);
+            ((Buffer) header).flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        }
+
+        if (Files.exists(file)) {
+            SnapshotFile.move(file, previousFile);
+        }
+        SnapshotFile.move(tempFile, file);
+        SnapshotFile.syncDirectory(file);
+    }
+
+    /**
+     * 加载最新的一份完整快照，依次尝试: 正式文件、已写完但未改名的临时文件、上一代快照
+     * 正式文件校验失败时改名为 .corrupt 保留现场
+     */
+    @Override
+    public List<T> load() throws IOException {
+        boolean found = false;
+        for (Path candidate : Arrays.asList(file, tempFile, previousFile)) {
+            if (!Files.exists(candidate)) {
+                continue;
+            }
+            found = true;
+
+            try {
+                List<T> items = map(candidate);
+                if (items != null) {
+                    if (candidate != file) {
+                        System.err.println("Recovered " + file + " from " + candidate);
+                    }
+                    return items;
+                }
+            } catch (IOException | IndexOutOfBoundsException e) {
+                System.err.println("Invalid snapshot " + candidate + ": " + e.getMessage());
+            }
+
+            if (candidate == file) {
+                SnapshotFile.move(file, corruptFile);
+            }
+        }
+
+        if (found) {
+            throw new IOException("No valid snapshot for " + file);
+        }
+        return null;
+    }
+
+    /**
+     * 映射并校验一个快照文件，建立记录和字符串的偏移表；校验不通过时返回null
+     * 映射在通道关闭后仍然有效，直到缓冲区被回收
+     */
+    private List<T> map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                System.err.println("Truncated snapshot " + path);
+                return null;
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot too large to map: " + path);
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                System.err.println("Not a binary snapshot: " + path);
+                return null;
+            }
+            int recordCount = buffer.getInt(8);
+            int stringCount = buffer.getInt(12);
+            long stringTableOffset = buffer.getLong(16);
+            int expectedCrc = buffer.getInt(24);
+            if (recordCount < 0 || stringCount < 0 || stringTableOffset < HEADER_SIZE || stringTableOffset > size) {
+                System.err.println("Invalid header in " + path);
+                return null;
+            }
+
+            CRC32 crc = new CRC32();
+            ByteBuffer body = buffer.duplicate();
+            ((Buffer) body).position(HEADER_SIZE);
+            crc.update(body);
+            if ((int) crc.getValue() != expectedCrc) {
+                System.err.println("Checksum mismatch in " + path);
+                return null;
+            }
+
+            int[] recordOffsets = offsets(buffer, HEADER_SIZE, recordCount, (int) stringTableOffset);
+            int[] stringOffsets = offsets(buffer, (int) stringTableOffset, stringCount, (int) size);
+            if (recordOffsets == null || stringOffsets == null) {
+                System.err.println("Invalid record layout in " + path);
+                return null;
+            }
+            return new MappedRecords(buffer, recordOffsets, new StringTable(buffer, stringOffsets));
+        }
+    }
+
+    /**
+     * 顺着长度前缀扫描出每个条目的起始位置，越界时返回null
+     */
+    private static int[] offsets(ByteBuffer buffer, int start, int count, int limit) {
+        int[] offsets = new int[count];
+        long position = start;
+        for (int i = 0; i < count; i++) {
+            if (position + 4 > limit) {
+                return null;
+            }
+            offsets[i] = (int) position;
+            position += 4 + (long) buffer.getInt((int) position);
+        }
+        return position == limit ? offsets : null;
+    }
+
+    /**
+     * 按需解码的记录列表
+     */
+    private class MappedRecords extends AbstractList<T> implements RandomAccess {
+        private final ByteBuffer buffer;
+        private final int[] offsets;
+        private final StringTable strings;
+
+        MappedRecords(ByteBuffer buffer, int[] offsets, StringTable strings) {
+            this.buffer = buffer;
+            this.offsets = offsets;
+            this.strings = strings;
+        }
+
+        @Override
+        public T get(int index) {
+            int start = offsets[index] + 4;
+            int end = start + buffer.getInt(offsets[index]);
+            try {
+                return adapter.read(new BinaryJson.Decoder(buffer, start, end, strings::get));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public int size() {
+            return offsets.length;
+        }
+    }
+
+    /**
+     * 字符串表，第一次用到某个字符串时才解码并缓存
+     * 并发解码同一个字符串只会得到相同的结果，无需加锁
+     */
+    private static class StringTable {
+        private final ByteBuffer buffer;
+        private final int[] offsets;
+        private final String[] cache;
+
+        StringTable(ByteBuffer buffer, int[] offsets) {
+            this.buffer = buffer;
+            this.offsets = offsets;
+            this.cache = new String[offsets.length];
+        }
+
+        String get(int id) {
+            String value = cache[id];
+            if (value == null) {
+                byte[] bytes = new byte[buffer.getInt(offsets[id])];
+                ByteBuffer source = buffer.duplicate();
+                ((Buffer) source).position(offsets[id] + 4);
+                source.get(bytes);
+                value = new String(bytes, StandardCharsets.UTF_8);
+                cache[id] = value;
+            }
+            return value;
+        }
+    }
+}
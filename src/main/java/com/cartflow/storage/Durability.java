@@ -0,0 +1,33 @@
+package com.cartflow.storage;
+
+/**
+ * 持久化级别（cartflow.data.durability）
+ */
+public enum Durability {
+    /**
+     * 每次变更立即重写整个JSON文件，不丢数据，吞吐最低
+     */
+    SYNC,
+
+    /**
+     * 每次变更追加一条增量记录到日志，日志分组刷盘并定期压缩进JSON快照；
+     * 最多丢失一个刷盘间隔内的变更
+     */
+    JOURNAL,
+
+    /**
+     * 变更只标记为脏，由后台任务按间隔或累计变更数合并写出；
+     * 最多丢失一个刷新间隔内的变更，吞吐最高
+     */
+    WRITE_BEHIND;
+
+    /**
+     * 解析配置值，如 "sync"、"journal"、"write-behind"
+     */
+    public static Durability parse(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return JOURNAL;
+        }
+        return valueOf(value.trim().toUpperCase().replace('-', '_'));
+    }
+}
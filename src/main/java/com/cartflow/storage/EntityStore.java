@@ -0,0 +1,53 @@
+package com.cartflow.storage;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 单个实体的持久化存储，按主键读写
+ * 写操作的落盘时机由打开时指定的持久化级别决定。
+ */
+public interface EntityStore<T> {
+
+    /**
+     * 实体名，如 "products"
+     */
+    String getName();
+
+    /**
+     * 按主键读取，不存在时返回null
+     */
+    T get(String key) throws IOException;
+
+    /**
+     * 读取全部记录
+     */
+    List<T> scan() throws IOException;
+
+    /**
+     * 写入（新增或覆盖）一条记录
+     */
+    void put(T value) throws IOException;
+
+    /**
+     * 批量写入，作为一次写操作提交
+     */
+    void putAll(List<T> values) throws IOException;
+
+    /**
+     * 删除一条记录
+     */
+    void delete(String key) throws IOException;
+
+    /**
+     * 用给定的记录整体替换存储中的全部内容
+     */
+    void replaceAll(List<T> values) throws IOException;
+
+    /**
+     * 注册全量数据来源。需要整体重写的引擎（如JSON文件）用它取得当前的全部记录，其他引擎可以忽略
+     */
+    default void bindSource(Supplier<List<T>> source) {
+    }
+}
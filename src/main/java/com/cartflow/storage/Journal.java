@@ -0,0 +1,261 @@
+package com.cartflow.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 追加写日志（WAL）
+ * 每次变更以一行JSON增量记录追加到日志末尾，由后台线程分组刷盘，
+ * 压缩时日志先轮转为 .compacting 文件，快照写入成功后再删除。
+ *
+ * 记录格式:
+ *   {"op":"put","value":{...}}
+ *   {"op":"del","key":"..."}
+ *   {"op":"batch","values":[{...},...]}   一行写入多个实体，重放时要么全部生效要么整行丢弃
+ */
+public class Journal<T> {
+    private static final String OP_PUT = "put";
+    private static final String OP_DELETE = "del";
+    private static final String OP_BATCH = "batch";
+
+    private final Path logFile;
+    private final Path compactingFile;
+    private final Class<T> type;
+    private final Function<T, String> keyExtractor;
+    private final Gson gson;
+
+    private FileChannel channel;
+    private int recordCount;
+    private boolean dirty;
+
+    public Journal(String logFilename, Class<T> type, Function<T, String> keyExtractor, Gson gson) {
+        this.logFile = Paths.get(logFilename);
+        this.compactingFile = Paths.get(logFilename + ".compacting");
+        this.type = type;
+        this.keyExtractor = keyExtractor;
+        this.gson = gson;
+    }
+
+    /**
+     * 打开日志文件（追加模式）
+     */
+    public synchronized void open() throws IOException {
+        if (channel == null) {
+            channel = openChannel();
+        }
+    }
+
+    /**
+     * 以快照为基础重放日志，返回重建后的实体列表
+     * 先重放未完成压缩的旧日志，再重放当前日志；记录均为全量值，重复重放是幂等的
+     */
+    public synchronized List<T> replay(List<T> snapshot) {
+        Map<String, T> state = new LinkedHashMap<>();
+        for (T item : snapshot) {
+            state.put(keyExtractor.apply(item), item);
+        }
+
+        recordCount = replayFile(compactingFile, state) + replayFile(logFile, state);
+        return new ArrayList<>(state.values());
+    }
+
+    private int replayFile(Path file, Map<String, T> state) {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+
+        int count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                try {
+                    JsonObject record = JsonParser.parseString(line).getAsJsonObject();
+                    String op = record.get("op").getAsString();
+                    if (OP_PUT.equals(op)) {
+                        T value = gson.fromJson(record.get("value"), type);
+                        state.put(keyExtractor.apply(value), value);
+                    } else if (OP_DELETE.equals(op)) {
+                        state.remove(record.get("key").getAsString());
+                    } else if (OP_BATCH.equals(op)) {
+                        for (JsonElement element : record.get("values").getAsJsonArray()) {
+                            T value = gson.fromJson(element, type);
+                            state.put(keyExtractor.apply(value), value);
+                        }
+                    }
+                    count++;
+                } catch (JsonParseException | IllegalStateException | NullPointerException e) {
+                    // 崩溃时最后一条记录可能只写了一半，跳过残缺记录
+                    System.err.println("Skipping torn journal record in " + file + ": " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to replay journal " + file + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+        return count;
+    }
+
+    /**
+     * 追加一条写入记录
+     */
+    public void appendPut(T value) throws IOException {
+        append("{\"op\":\"" + OP_PUT + "\",\"value\":" + gson.toJson(value, type) + "}\n");
+    }
+
+    /**
+     * 把多个实体的写入合并为一条记录追加
+     */
+    public void appendPutAll(List<T> values) throws IOException {
+        StringBuilder line = new StringBuilder("{\"op\":\"" + OP_BATCH + "\",\"values\":[");
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            line.append(gson.toJson(values.get(i), type));
+        }
+        append(line.append("]}\n").toString());
+    }
+
+    /**
+     * 追加一条删除记录
+     */
+    public void appendDelete(String key) throws IOException {
+        append("{\"op\":\"" + OP_DELETE + "\",\"key\":" + gson.toJson(key) + "}\n");
+    }
+
+    private synchronized void append(String line) throws IOException {
+        if (channel == null) {
+            channel = openChannel();
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        recordCount++;
+        dirty = true;
+    }
+
+    /**
+     * 分组刷盘：把上次刷盘以来追加的所有记录一次性fsync
+     */
+    public void sync() {
+        FileChannel target;
+        synchronized (this) {
+            if (!dirty || channel == null) {
+                return;
+            }
+            dirty = false;
+            target = channel;
+        }
+
+        try {
+            target.force(false);
+        } catch (ClosedChannelException e) {
+            // 日志已被轮转，关闭前已经刷过盘
+        } catch (IOException e) {
+            System.err.println("Failed to sync journal " + logFile + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * 当前日志中的记录数（含未完成压缩的旧日志）
+     */
+    public synchronized int size() {
+        return recordCount;
+    }
+
+    /**
+     * 开始压缩：把当前日志轮转为 .compacting 文件，之后的变更写入新日志
+     * 调用方应在轮转之后再读取内存状态生成快照
+     */
+    public synchronized boolean rotate() throws IOException {
+        if (recordCount == 0) {
+            return false;
+        }
+
+        if (channel != null) {
+            channel.force(false);
+            channel.close();
+            channel = null;
+        }
+        dirty = false;
+
+        if (Files.exists(logFile)) {
+            if (Files.exists(compactingFile)) {
+                // 上一次压缩没有完成，把当前日志接到旧日志后面
+                Files.write(compactingFile, Files.readAllBytes(logFile), StandardOpenOption.APPEND);
+                Files.delete(logFile);
+            } else {
+                Files.move(logFile, compactingFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+
+        channel = openChannel();
+        recordCount = 0;
+        return true;
+    }
+
+    /**
+     * 快照已落盘，删除被压缩的旧日志
+     */
+    public void finishCompaction() throws IOException {
+        Files.deleteIfExists(compactingFile);
+    }
+
+    /**
+     * 刷盘并关闭日志
+     */
+    public synchronized void close() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.force(false);
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Failed to close journal " + logFile + ": " + e.getMessage());
+        }
+        channel = null;
+    }
+
+    private FileChannel openChannel() throws IOException {
+        // 所有写入都在锁内进行，直接定位到文件末尾追加即可
+        FileChannel opened = FileChannel.open(logFile, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = opened.size();
+        opened.position(size);
+
+        // 残缺的尾部记录没有换行符，先补一个，避免与新记录粘连
+        if (size > 0) {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            opened.read(last, size - 1);
+            if (last.get(0) != '\n') {
+                opened.write(ByteBuffer.wrap(new byte[]{'\n'}));
+            }
+        }
+        return opened;
+    }
+}
@@ -0,0 +1,397 @@
+package com.cartflow.storage;
+
+import com.google.gson.Gson;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 文件存储引擎
+ * 每个实体一个快照文件，格式由 snapshot-format 决定（JSON 的 SnapshotFile 或二进制的 BinarySnapshotFile），
+ * 切换格式后第一次打开时自动把另一种格式的快照和日志转换过来。单条变更按持久化级别处理：
+ *   sync         - 重写整个快照文件
+ *   journal      - 追加增量记录到日志（Journal），后台分组刷盘，记录数超过阈值时压缩进快照
+ *   write-behind - 只累计变更数，后台按间隔或累计变更数合并写出整个文件
+ * 整文件重写需要当前的全量数据，由 bindSource 注册的来源提供。
+ * 快照写出耗时记入 cartflow.data.snapshot.write。
+ */
+public class JsonFileEngine implements StorageEngine {
+
+    private static final String JOURNAL_SUFFIX = ".log";
+    private static final String COMPACTING_SUFFIX = ".compacting";
+    private static final String MIGRATED_SUFFIX = ".migrated";
+
+    private final StorageSettings settings;
+    private final Gson gson;
+    private final MeterRegistry meterRegistry;
+
+    private final List<JsonStore<?>> stores = new CopyOnWriteArrayList<>();
+
+    private ScheduledExecutorService scheduler;
+
+    public JsonFileEngine(StorageSettings settings, Gson gson, MeterRegistry meterRegistry) throws IOException {
+        this.settings = settings;
+        this.gson = gson;
+        this.meterRegistry = meterRegistry;
+        Files.createDirectories(settings.getDataDir());
+    }
+
+    @Override
+    public <T> EntityStore<T> open(String name, Class<T> type, Function<T, String> keyExtractor,
+                                   Durability durability) throws IOException {
+        JsonStore<T> store = new JsonStore<>(name, type, keyExtractor, durability);
+        convertFromOtherFormat(store, type, keyExtractor);
+        if (durability == Durability.JOURNAL) {
+            store.journal = new Journal<>(store.filename + JOURNAL_SUFFIX, type, keyExtractor, gson);
+            store.journal.open();
+        } else {
+            foldLeftoverJournal(store, type, keyExtractor);
+        }
+        if (durability != Durability.SYNC) {
+            startScheduler();
+        }
+        stores.add(store);
+        return store;
+    }
+
+    /**
+     * 当前格式的快照还不存在、另一种格式的快照存在时，加载它并重放其日志，写成当前格式，
+     * 旧日志删除，旧快照改名为 .migrated 保留备份，保证同一实体只有一份有效快照
+     */
+    private <T> void convertFromOtherFormat(JsonStore<T> store, Class<T> type,
+                                            Function<T, String> keyExtractor) throws IOException {
+        if (Files.exists(Paths.get(store.filename))) {
+            return;
+        }
+
+        for (SnapshotFormat format : SnapshotFormat.values()) {
+            Path otherFile = settings.getDataDir().resolve(store.name + format.getSuffix());
+            if (format == settings.getSnapshotFormat() || !Files.exists(otherFile)) {
+                continue;
+            }
+
+            List<T> items = format.open(otherFile.toString(), type, gson).load();
+            Path logFile = Paths.get(otherFile + JOURNAL_SUFFIX);
+            items = new Journal<>(logFile.toString(), type, keyExtractor, gson)
+                    .replay(items != null ? items : new ArrayList<>());
+            store.writeSnapshot(items);
+            Files.deleteIfExists(Paths.get(logFile + COMPACTING_SUFFIX));
+            Files.deleteIfExists(logFile);
+            SnapshotFile.move(otherFile, Paths.get(otherFile + MIGRATED_SUFFIX));
+            System.out.println("Converted " + otherFile + " to " + store.filename);
+            return;
+        }
+    }
+
+    /**
+     * 以日志模式运行过、又切换到其他级别时，把遗留的日志合并进快照后删除，
+     * 否则这些变更既不会被加载，也可能在以后切回日志模式时覆盖掉更新的数据
+     */
+    private <T> void foldLeftoverJournal(JsonStore<T> store, Class<T> type,
+                                         Function<T, String> keyExtractor) throws IOException {
+        Path logFile = Paths.get(store.filename + JOURNAL_SUFFIX);
+        Path compactingFile = Paths.get(store.filename + JOURNAL_SUFFIX + COMPACTING_SUFFIX);
+        if (!Files.exists(logFile) && !Files.exists(compactingFile)) {
+            return;
+        }
+
+        List<T> items = store.snapshot.load();
+        items = new Journal<>(logFile.toString(), type, keyExtractor, gson)
+                .replay(items != null ? items : new ArrayList<>());
+        store.writeSnapshot(items);
+        Files.deleteIfExists(compactingFile);
+        Files.deleteIfExists(logFile);
+    }
+
+    @Override
+    public List<Path> files() {
+        List<Path> files = new ArrayList<>();
+        for (JsonStore<?> store : stores) {
+            files.add(Paths.get(store.filename));
+            if (store.journal != null) {
+                files.add(Paths.get(store.filename + JOURNAL_SUFFIX));
+            }
+        }
+        return files;
+    }
+
+    /**
+     * 停止后台任务，日志刷盘并关闭，脏数据立即写出
+     */
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        for (JsonStore<?> store : stores) {
+            if (store.journal != null) {
+                store.journal.close();
+            } else if (store.durability == Durability.WRITE_BEHIND) {
+                flush(store);
+            }
+        }
+    }
+
+    /**
+     * 启动后台任务：日志定时分组刷盘、压缩；延迟写定时合并写出脏数据
+     */
+    private synchronized void startScheduler() {
+        if (scheduler != null) {
+            return;
+        }
+
+        scheduler = Executors.newScheduledThreadPool(2, r -> {
+            Thread thread = new Thread(r, "cartflow-persistence");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long syncInterval = settings.getJournalSyncIntervalMs();
+        long flushInterval = settings.getWriteBehindFlushIntervalMs();
+        scheduler.scheduleWithFixedDelay(this::syncJournals, syncInterval, syncInterval, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::compactJournals, 1, 1, TimeUnit.SECONDS);
+        scheduler.scheduleWithFixedDelay(this::flushDirty, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 分组刷盘任务
+     */
+    private void syncJournals() {
+        for (JsonStore<?> store : stores) {
+            if (store.journal != null) {
+                store.journal.sync();
+            }
+        }
+    }
+
+    /**
+     * 日志压缩任务：记录数超过阈值时轮转日志，并把当前内存状态写成新的快照
+     */
+    private void compactJournals() {
+        for (JsonStore<?> store : stores) {
+            if (store.journal != null) {
+                compact(store);
+            }
+        }
+    }
+
+    private <T> void compact(JsonStore<T> store) {
+        Supplier<List<T>> source = store.source;
+        if (source == null || store.journal.size() < settings.getJournalCompactThreshold()) {
+            return;
+        }
+
+        try {
+            // 先轮转再取快照，轮转之后的变更都会留在新日志中
+            if (!store.journal.rotate()) {
+                return;
+            }
+            store.writeSnapshot(source.get());
+            store.journal.finishCompaction();
+        } catch (IOException | RuntimeException e) {
+            // 压缩失败时旧日志保留，下次压缩会一并处理
+            System.err.println("Failed to compact journal for " + store.filename + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * 延迟写定时任务：写出所有有变更的实体文件
+     */
+    private void flushDirty() {
+        for (JsonStore<?> store : stores) {
+            if (store.durability == Durability.WRITE_BEHIND) {
+                flush(store);
+            }
+        }
+    }
+
+    /**
+     * 把一个实体文件的当前内存状态整体写出，期间累计的所有变更合并为一次写入
+     */
+    private <T> void flush(JsonStore<T> store) {
+        Supplier<List<T>> source = store.source;
+        if (source == null) {
+            return;
+        }
+
+        synchronized (store) {
+            // 清除标记后再累计到上限的变更会重新安排一次提前写出
+            store.flushScheduled.set(false);
+            int pending = store.pendingChanges.getAndSet(0);
+            if (pending == 0) {
+                return;
+            }
+
+            try {
+                // 先清零再取快照，取快照之后的变更会重新计数，留给下一次写出
+                store.writeSnapshot(source.get());
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Failed to flush " + store.filename + ": " + e.getMessage());
+                store.pendingChanges.addAndGet(pending);
+            }
+        }
+    }
+
+    /**
+     * 单个实体的文件：快照、日志（仅日志模式）和全量数据来源
+     */
+    private class JsonStore<T> implements EntityStore<T> {
+        private final String name;
+        private final String filename;
+        private final Function<T, String> keyExtractor;
+        private final Durability durability;
+        private final Snapshot<T> snapshot;
+        private final Timer snapshotTimer;
+        private final AtomicInteger pendingChanges = new AtomicInteger();
+        private final AtomicBoolean flushScheduled = new AtomicBoolean();
+        private Journal<T> journal;
+        private volatile Supplier<List<T>> source;
+
+        JsonStore(String name, Class<T> type, Function<T, String> keyExtractor, Durability durability) {
+            this.name = name;
+            this.filename = settings.getDataDir().resolve(name + settings.getSnapshotFormat().getSuffix()).toString();
+            this.keyExtractor = keyExtractor;
+            this.durability = durability;
+            this.snapshot = settings.getSnapshotFormat().open(filename, type, gson);
+            this.snapshotTimer = Timer.builder("cartflow.data.snapshot.write")
+                    .description("Time to write a full snapshot file")
+                    .tag("store", name)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * 按主键读取需要遍历全量数据，只适合低频使用
+         */
+        @Override
+        public T get(String key) throws IOException {
+            Supplier<List<T>> current = source;
+            for (T item : current != null ? current.get() : scan()) {
+                if (key.equals(keyExtractor.apply(item))) {
+                    return item;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * 加载快照（校验失败时回退到上一代）并重放日志
+         */
+        @Override
+        public List<T> scan() throws IOException {
+            List<T> items = snapshot.load();
+            if (items == null) {
+                items = new ArrayList<>();
+            }
+            if (journal != null) {
+                items = journal.replay(items);
+            }
+            return items;
+        }
+
+        @Override
+        public void put(T value) throws IOException {
+            if (journal != null) {
+                journal.appendPut(value);
+            } else {
+                saveSnapshot();
+            }
+        }
+
+        @Override
+        public void putAll(List<T> values) throws IOException {
+            if (journal != null) {
+                journal.appendPutAll(values);
+            } else {
+                saveSnapshot();
+            }
+        }
+
+        @Override
+        public void delete(String key) throws IOException {
+            if (journal != null) {
+                journal.appendDelete(key);
+            } else {
+                saveSnapshot();
+            }
+        }
+
+        @Override
+        public void replaceAll(List<T> values) throws IOException {
+            writeSnapshot(values);
+        }
+
+        @Override
+        public void bindSource(Supplier<List<T>> source) {
+            this.source = source;
+        }
+
+        /**
+         * 单条变更：延迟写模式下只累计变更数，达到上限时立即安排一次写出（同一时间最多排队一次）；
+         * 否则用全量数据重写文件
+         */
+        private void saveSnapshot() throws IOException {
+            if (durability == Durability.WRITE_BEHIND) {
+                if (pendingChanges.incrementAndGet() >= settings.getWriteBehindMaxPendingChanges()
+                        && flushScheduled.compareAndSet(false, true)) {
+                    try {
+                        scheduler.execute(() -> flush(this));
+                    } catch (RejectedExecutionException e) {
+                        // 正在关闭，关闭时会写出所有脏数据
+                        flushScheduled.set(false);
+                    }
+                }
+                return;
+            }
+
+            Supplier<List<T>> current = source;
+            if (current == null) {
+                throw new IOException("No snapshot source registered for " + filename);
+            }
+
+            // 在该文件的写锁内取快照，最后一次写入的一定是最新状态；不同实体文件互不阻塞。
+            // 调用方已持有对应管理类的锁（或快照无需加锁），不会形成锁环
+            synchronized (snapshot) {
+                writeSnapshot(current.get());
+            }
+        }
+
+        /**
+         * 写出新一代快照（临时文件 + 刷盘 + 原子改名），写入失败时原快照保持不变
+         */
+        private void writeSnapshot(List<T> items) throws IOException {
+            Timer.Sample sample = Timer.start();
+            try {
+                snapshot.write(items, settings.isPrettyPrint());
+            } finally {
+                sample.stop(snapshotTimer);
+            }
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.cartflow.storage;
+
+import com.google.gson.Gson;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.h2.mvstore.MVStoreException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * MVStore存储引擎
+ * 所有实体存放在同一个文件（cartflow.mv.db）中，每个实体一张 MVMap（主键 -> JSON），
+ * 单条变更只写这一条记录，不再重写整个实体文件。
+ *
+ * 持久化级别对应：
+ *   sync         - 每次写入后立即提交并刷盘
+ *   journal      - 按 journal.sync-interval-ms 自动提交
+ *   write-behind - 按 write-behind.flush-interval-ms 自动提交
+ * 首次打开某个实体且其为空时，从数据目录中已有的快照和日志导入数据。
+ */
+public class MvStoreEngine implements StorageEngine {
+
+    public static final String STORE_FILE = "cartflow.mv.db";
+    private static final String JOURNAL_SUFFIX = ".log";
+
+    private final StorageSettings settings;
+    private final Gson gson;
+    private final Path storeFile;
+    private final MVStore store;
+
+    public MvStoreEngine(StorageSettings settings, Gson gson) throws IOException {
+        this.settings = settings;
+        this.gson = gson;
+        Files.createDirectories(settings.getDataDir());
+        this.storeFile = settings.getDataDir().resolve(STORE_FILE);
+
+        long commitDelay = settings.getDurability() == Durability.WRITE_BEHIND
+                ? settings.getWriteBehindFlushIntervalMs()
+                : settings.getJournalSyncIntervalMs();
+        try {
+            this.store = new MVStore.Builder()
+                    .fileName(storeFile.toString())
+                    .open();
+            this.store.setAutoCommitDelay((int) commitDelay);
+        } catch (MVStoreException e) {
+            throw new IOException("Failed to open " + storeFile + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public <T> EntityStore<T> open(String name, Class<T> type, Function<T, String> keyExtractor,
+                                   Durability durability) throws IOException {
+        MvEntityStore<T> entityStore = new MvEntityStore<>(name, type, keyExtractor, durability);
+        if (entityStore.map.isEmpty()) {
+            importJson(entityStore);
+        }
+        return entityStore;
+    }
+
+    @Override
+    public List<Path> files() {
+        return Collections.singletonList(storeFile);
+    }
+
+    /**
+     * 提交未写出的变更并关闭文件
+     */
+    @Override
+    public synchronized void close() {
+        if (store.isClosed()) {
+            return;
+        }
+        try {
+            store.close();
+        } catch (MVStoreException e) {
+            System.err.println("Failed to close " + storeFile + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 导入文件引擎留下的快照（JSON或二进制）和日志，便于从json引擎切换过来
+     */
+    private <T> void importJson(MvEntityStore<T> entityStore) throws IOException {
+        for (SnapshotFormat format : SnapshotFormat.values()) {
+            Path snapshotPath = settings.getDataDir().resolve(entityStore.name + format.getSuffix());
+            if (!Files.exists(snapshotPath)) {
+                continue;
+            }
+
+            String filename = snapshotPath.toString();
+            List<T> items = format.open(filename, entityStore.type, gson).load();
+            if (items == null) {
+                items = new ArrayList<>();
+            }
+            items = new Journal<>(filename + JOURNAL_SUFFIX, entityStore.type, entityStore.keyExtractor, gson)
+                    .replay(items);
+            if (items.isEmpty()) {
+                return;
+            }
+
+            entityStore.putAll(items);
+            store.commit();
+            System.out.println("Imported " + items.size() + " " + entityStore.name + " from " + filename);
+            return;
+        }
+    }
+
+    /**
+     * 单个实体对应的 MVMap
+     */
+    private class MvEntityStore<T> implements EntityStore<T> {
+        private final String name;
+        private final Class<T> type;
+        private final Function<T, String> keyExtractor;
+        private final Durability durability;
+        private final MVMap<String, String> map;
+
+        MvEntityStore(String name, Class<T> type, Function<T, String> keyExtractor, Durability durability) {
+            this.name = name;
+            this.type = type;
+            this.keyExtractor = keyExtractor;
+            this.durability = durability;
+            this.map = store.openMap(name);
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public T get(String key) throws IOException {
+            try {
+                String json = map.get(key);
+                return json != null ? gson.fromJson(json, type) : null;
+            } catch (MVStoreException e) {
+                throw new IOException("Failed to read " + name + "/" + key + ": " + e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public List<T> scan() throws IOException {
+            try {
+                List<T> items = new ArrayList<>(map.size());
+                for (String json : map.values()) {
+                    items.add(gson.fromJson(json, type));
+                }
+                return items;
+            } catch (MVStoreException e) {
+                throw new IOException("Failed to read " + name + ": " + e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public void put(T value) throws IOException {
+            try {
+                map.put(keyExtractor.apply(value), gson.toJson(value, type));
+            } catch (MVStoreException e) {
+                throw new IOException("Failed to write " + name + ": " + e.getMessage(), e);
+            }
+            commitIfSync();
+        }
+
+        @Override
+        public void putAll(List<T> values) throws IOException {
+            Map<String, String> encoded = encode(values);
+            try {
+                map.putAll(encoded);
+            } catch (MVStoreException e) {
+                throw new IOException("Failed to write " + name + ": " + e.getMessage(), e);
+            }
+            commitIfSync();
+        }
+
+        /**
+         * 先序列化再写入，序列化耗时不计入 MVMap 的写操作
+         */
+        private Map<String, String> encode(List<T> values) {
+            Map<String, String> encoded = new LinkedHashMap<>();
+            for (T value : values) {
+                encoded.put(keyExtractor.apply(value), gson.toJson(value, type));
+            }
+            return encoded;
+        }
+
+        @Override
+        public void delete(String key) throws IOException {
+            try {
+                map.remove(key);
+            } catch (MVStoreException e) {
+                throw new IOException("Failed to delete " + name + "/" + key + ": " + e.getMessage(), e);
+            }
+            commitIfSync();
+        }
+
+        /**
+         * 整体替换：先写入全部新值，再删除不再存在的键，最后提交一次
+         * 后台自动提交可能落在中途，但磁盘上任何时刻都不会是空表（ID序号等数据不会因崩溃丢失）
+         */
+        @Override
+        public void replaceAll(List<T> values) throws IOException {
+            Map<String, String> encoded = encode(values);
+            try {
+                map.putAll(encoded);
+                List<String> removed = new ArrayList<>();
+                for (String key : map.keySet()) {
+                    if (!encoded.containsKey(key)) {
+                        removed.add(key);
+                    }
+                }
+                for (String key : removed) {
+                    map.remove(key);
+                }
+            } catch (MVStoreException e) {
+                throw new IOException("Failed to replace " + name + ": " + e.getMessage(), e);
+            }
+            // 整体替换作为一次完整保存，立即提交
+            commit();
+        }
+
+        private void commitIfSync() throws IOException {
+            if (durability == Durability.SYNC) {
+                commit();
+            }
+        }
+
+        /**
+         * 提交当前版本并刷盘，返回时变更已经落盘
+         */
+        private void commit() throws IOException {
+            try {
+                store.commit();
+                store.sync();
+            } catch (MVStoreException e) {
+                throw new IOException("Failed to commit " + storeFile + ": " + e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.cartflow.storage;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 整体写出、整体加载的快照文件
+ * 实现需保证写入是原子的（写临时文件再改名），并在当前快照损坏时回退到上一代。
+ */
+public interface Snapshot<T> {
+
+    /**
+     * 写出新一代快照
+     *
+     * @param pretty 是否缩进（只对文本格式有效）
+     */
+    void write(Iterable<T> items, boolean pretty) throws IOException;
+
+    /**
+     * 加载最新的一份完整快照
+     *
+     * @return 快照中的实体；没有任何快照文件时返回null
+     * @throws IOException 快照文件存在但全部无法使用
+     */
+    List<T> load() throws IOException;
+}
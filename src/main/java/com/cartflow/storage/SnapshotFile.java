@@ -0,0 +1,258 @@
+package com.cartflow.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * 带校验的JSON快照文件
+ * 写入时先写临时文件并刷盘，再原子替换正式文件，正式文件在任何时刻都是一份完整的快照；
+ * 被替换下来的上一代快照保留为 .prev 文件，当前快照损坏时回退到它。
+ *
+ * 文件末尾追加一行校验记录，加载时校验通过才会使用:
+ *   [...JSON数组...]
+ *   #cartflow-snapshot crc32=1a2b3c4d length=12345
+ * 没有校验记录的旧格式文件（如手工维护的初始数据）按原样加载；手工编辑快照时删掉校验记录这一行即可，
+ * 校验不通过的文件一律视为损坏。
+ */
+public class SnapshotFile<T> implements Snapshot<T> {
+    private static final String TRAILER_PREFIX = "#cartflow-snapshot ";
+    private static final int MAX_TRAILER_BYTES = 128;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path file;
+    private final Path tempFile;
+    private final Path previousFile;
+    private final Path corruptFile;
+    private final Class<T> type;
+    private final Gson gson;
+
+    public SnapshotFile(String filename, Class<T> type, Gson gson) {
+        this.file = Paths.get(filename);
+        this.tempFile = Paths.get(filename + ".tmp");
+        this.previousFile = Paths.get(filename + ".prev");
+        this.corruptFile = Paths.get(filename + ".corrupt");
+        this.type = type;
+        this.gson = gson;
+    }
+
+    /**
+     * 写出新一代快照：临时文件 -> 刷盘 -> 当前快照改名为 .prev -> 临时文件原子改名为正式文件
+     * 同一文件的写入互斥；读取方不加锁，已打开的旧文件在改名后仍可完整读完
+     */
+    @Override
+    public synchronized void write(Iterable<T> items, boolean pretty) throws IOException {
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            CRC32 crc = new CRC32();
+            CountingOutputStream body = new CountingOutputStream(new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE), crc));
+            Writer writer = new OutputStreamWriter(body, StandardCharsets.UTF_8);
+            StreamingJson.writeArray(writer, items, type, gson, pretty);
+            writer.flush();
+
+            String trailer = "\n" + TRAILER_PREFIX
+                    + String.format("crc32=%08x length=%d", crc.getValue(), body.count) + "\n";
+            body.out.write(trailer.getBytes(StandardCharsets.UTF_8));
+            body.out.flush();
+            channel.force(true);
+        }
+
+        if (Files.exists(file)) {
+            move(file, previousFile);
+        }
+        move(tempFile, file);
+        syncDirectory(file);
+    }
+
+    /**
+     * 加载最新的一份完整快照，依次尝试: 正式文件、已写完但未改名的临时文件、上一代快照
+     * 正式文件校验失败时改名为 .corrupt 保留现场，避免下一次保存把它覆盖掉
+     *
+     * @return 快照中的实体；没有任何快照文件时返回null
+     * @throws IOException 快照文件存在但全部无法使用
+     */
+    @Override
+    public List<T> load() throws IOException {
+        boolean found = false;
+        for (Path candidate : Arrays.asList(file, tempFile, previousFile)) {
+            if (!Files.exists(candidate)) {
+                continue;
+            }
+            found = true;
+
+            try {
+                // 临时文件只有带完整校验记录时才可信
+                List<T> items = read(candidate, candidate == tempFile);
+                if (items != null) {
+                    if (candidate == previousFile) {
+                        System.err.println(file + " is unusable, loaded the previous generation "
+                                + candidate + "; changes saved after it are lost");
+                    } else if (candidate != file) {
+                        System.err.println("Recovered " + file + " from " + candidate);
+                    }
+                    return items;
+                }
+            } catch (IOException | JsonParseException e) {
+                System.err.println("Invalid snapshot " + candidate + ": " + e.getMessage());
+            }
+
+            if (candidate == file) {
+                System.err.println("Keeping the invalid snapshot " + file + " as " + corruptFile);
+                move(file, corruptFile);
+            }
+        }
+
+        if (found) {
+            throw new IOException("No valid snapshot for " + file);
+        }
+        return null;
+    }
+
+    /**
+     * 读取并校验一个快照文件，校验不通过时返回null
+     */
+    private List<T> read(Path path, boolean requireTrailer) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            Trailer trailer = readTrailer(channel, size);
+            if (trailer == null) {
+                if (requireTrailer) {
+                    return null;
+                }
+            } else if (trailer.length != size - trailer.bytes || checksum(channel, trailer.length) != trailer.crc) {
+                System.err.println("Checksum mismatch in " + path);
+                return null;
+            }
+
+            List<T> items = new ArrayList<>();
+            channel.position(0);
+            StreamingJson.readArray(channel, type, gson, items::add);
+            return items;
+        }
+    }
+
+    private static Trailer readTrailer(FileChannel channel, long size) throws IOException {
+        int tailSize = (int) Math.min(size, MAX_TRAILER_BYTES);
+        ByteBuffer tail = ByteBuffer.allocate(tailSize);
+        while (tail.hasRemaining()) {
+            if (channel.read(tail, size - tailSize + tail.position()) < 0) {
+                break;
+            }
+        }
+        String text = new String(tail.array(), 0, tail.position(), StandardCharsets.UTF_8);
+
+        int start = text.lastIndexOf("\n" + TRAILER_PREFIX);
+        if (start < 0 || !text.endsWith("\n")) {
+            return null;
+        }
+
+        try {
+            String line = text.substring(start + 1 + TRAILER_PREFIX.length(), text.length() - 1);
+            Trailer trailer = new Trailer();
+            for (String field : line.split(" ")) {
+                if (field.startsWith("crc32=")) {
+                    trailer.crc = Long.parseLong(field.substring(6), 16);
+                } else if (field.startsWith("length=")) {
+                    trailer.length = Long.parseLong(field.substring(7));
+                }
+            }
+            trailer.bytes = text.substring(start).getBytes(StandardCharsets.UTF_8).length;
+            return trailer;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static long checksum(FileChannel channel, long length) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        long position = 0;
+        while (position < length) {
+            buffer.clear();
+            buffer.limit((int) Math.min(BUFFER_SIZE, length - position));
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            crc.update(buffer.array(), 0, read);
+            position += read;
+        }
+        return crc.getValue();
+    }
+
+    static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * 刷新目录项，保证改名本身也已落盘（部分平台不支持打开目录，忽略即可）
+     */
+    static void syncDirectory(Path file) {
+        Path dir = file.toAbsolutePath().getParent();
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // 不支持目录刷盘的平台
+        }
+    }
+
+    private static class Trailer {
+        private long crc;
+        private long length;
+        private int bytes;
+    }
+
+    /**
+     * 统计写入字节数，用于记录JSON正文长度
+     */
+    private static class CountingOutputStream extends OutputStream {
+        private final OutputStream out;
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+    }
+}
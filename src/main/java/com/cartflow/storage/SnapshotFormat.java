@@ -0,0 +1,50 @@
+package com.cartflow.storage;
+
+import com.google.gson.Gson;
+
+/**
+ * 快照文件格式（cartflow.data.snapshot-format）
+ */
+public enum SnapshotFormat {
+    /**
+     * 带校验的JSON数组，便于手工查看和编辑
+     */
+    JSON(".json"),
+
+    /**
+     * 二进制快照：定长文件头、长度前缀记录、字符串表，加载时内存映射、按需解码
+     */
+    BINARY(".snap");
+
+    private final String suffix;
+
+    SnapshotFormat(String suffix) {
+        this.suffix = suffix;
+    }
+
+    /**
+     * 文件扩展名，如 ".json"
+     */
+    public String getSuffix() {
+        return suffix;
+    }
+
+    /**
+     * 按本格式打开一个快照文件
+     */
+    public <T> Snapshot<T> open(String filename, Class<T> type, Gson gson) {
+        return this == BINARY
+                ? new BinarySnapshotFile<>(filename, type, gson)
+                : new SnapshotFile<>(filename, type, gson);
+    }
+
+    /**
+     * 解析配置值，如 "json"、"binary"
+     */
+    public static SnapshotFormat parse(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return JSON;
+        }
+        return valueOf(value.trim().toUpperCase());
+    }
+}
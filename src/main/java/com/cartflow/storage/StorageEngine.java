@@ -0,0 +1,34 @@
+package com.cartflow.storage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 存储引擎（cartflow.data.engine）
+ *   json    - 每个实体一个JSON快照文件，单条变更按持久化级别写日志或重写文件（JsonFileEngine）
+ *   mvstore - 嵌入式键值存储，所有实体存放在同一个文件中，单条变更只写这一条记录（MvStoreEngine）
+ */
+public interface StorageEngine {
+
+    /**
+     * 打开一个实体的存储
+     *
+     * @param name         实体名，同时决定文件名（如 products -> products.json）
+     * @param keyExtractor 主键
+     * @param durability   该实体的持久化级别
+     */
+    <T> EntityStore<T> open(String name, Class<T> type, Function<T, String> keyExtractor,
+                            Durability durability) throws IOException;
+
+    /**
+     * 引擎当前使用的数据文件，用于监控文件大小
+     */
+    List<Path> files();
+
+    /**
+     * 写出所有未持久化的变更并释放资源
+     */
+    void close();
+}
@@ -0,0 +1,82 @@
+package com.cartflow.storage;
+
+import java.nio.file.Path;
+
+/**
+ * 存储引擎配置（来自 cartflow.data.*）
+ */
+public class StorageSettings {
+    private Path dataDir;
+    private Durability durability = Durability.JOURNAL;
+    private long journalSyncIntervalMs = 50;
+    private int journalCompactThreshold = 1000;
+    private long writeBehindFlushIntervalMs = 1000;
+    private int writeBehindMaxPendingChanges = 500;
+    private boolean prettyPrint;
+    private SnapshotFormat snapshotFormat = SnapshotFormat.JSON;
+
+    // Getters and Setters
+    public Path getDataDir() {
+        return dataDir;
+    }
+
+    public void setDataDir(Path dataDir) {
+        this.dataDir = dataDir;
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    public void setDurability(Durability durability) {
+        this.durability = durability;
+    }
+
+    public long getJournalSyncIntervalMs() {
+        return journalSyncIntervalMs;
+    }
+
+    public void setJournalSyncIntervalMs(long journalSyncIntervalMs) {
+        this.journalSyncIntervalMs = journalSyncIntervalMs;
+    }
+
+    public int getJournalCompactThreshold() {
+        return journalCompactThreshold;
+    }
+
+    public void setJournalCompactThreshold(int journalCompactThreshold) {
+        this.journalCompactThreshold = journalCompactThreshold;
+    }
+
+    public long getWriteBehindFlushIntervalMs() {
+        return writeBehindFlushIntervalMs;
+    }
+
+    public void setWriteBehindFlushIntervalMs(long writeBehindFlushIntervalMs) {
+        this.writeBehindFlushIntervalMs = writeBehindFlushIntervalMs;
+    }
+
+    public int getWriteBehindMaxPendingChanges() {
+        return writeBehindMaxPendingChanges;
+    }
+
+    public void setWriteBehindMaxPendingChanges(int writeBehindMaxPendingChanges) {
+        this.writeBehindMaxPendingChanges = writeBehindMaxPendingChanges;
+    }
+
+    public boolean isPrettyPrint() {
+        return prettyPrint;
+    }
+
+    public void setPrettyPrint(boolean prettyPrint) {
+        this.prettyPrint = prettyPrint;
+    }
+
+    public SnapshotFormat getSnapshotFormat() {
+        return snapshotFormat;
+    }
+
+    public void setSnapshotFormat(SnapshotFormat snapshotFormat) {
+        this.snapshotFormat = snapshotFormat;
+    }
+}
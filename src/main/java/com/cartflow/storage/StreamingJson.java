@@ -0,0 +1,121 @@
+package com.cartflow.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 流式JSON数组读写
+ * 基于Gson的JsonReader/JsonWriter和带缓冲的NIO文件通道，逐条读写数组元素，
+ * 读写过程中只有当前元素在内存中，不会先拼出整个文档或整棵JSON树。
+ */
+public final class StreamingJson {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private StreamingJson() {
+    }
+
+    /**
+     * 逐条读取JSON数组，每读出一个元素就交给consumer
+     *
+     * @return 读取的元素个数
+     */
+    public static <T> int readArray(Path file, Class<T> type, Gson gson, Consumer<T> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return readArray(channel, type, gson, consumer);
+        }
+    }
+
+    /**
+     * 从已打开的文件通道的当前位置读取JSON数组，数组结束之后的内容不会被解析
+     */
+    public static <T> int readArray(FileChannel channel, Class<T> type, Gson gson,
+                                    Consumer<T> consumer) throws IOException {
+        Reader reader = new BufferedReader(
+                Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), BUFFER_SIZE), BUFFER_SIZE);
+        JsonReader json = new JsonReader(reader);
+        if (json.peek() == JsonToken.END_DOCUMENT) {
+            return 0;
+        }
+        if (json.peek() == JsonToken.NULL) {
+            json.nextNull();
+            return 0;
+        }
+
+        int count = 0;
+        json.beginArray();
+        while (json.hasNext()) {
+            T item = gson.fromJson(json, type);
+            if (item != null) {
+                consumer.accept(item);
+                count++;
+            }
+        }
+        json.endArray();
+        return count;
+    }
+
+    /**
+     * 读取整个JSON数组到列表
+     */
+    public static <T> List<T> readList(Path file, Class<T> type, Gson gson) throws IOException {
+        List<T> items = new ArrayList<>();
+        readArray(file, type, gson, items::add);
+        return items;
+    }
+
+    /**
+     * 逐条写出JSON数组，默认紧凑格式
+     *
+     * @param pretty 是否缩进排版（便于人工查看，文件更大、写得更慢）
+     */
+    public static <T> void writeArray(Path file, Iterable<T> items, Class<T> type, Gson gson,
+                                      boolean pretty) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeArray(channel, items, type, gson, pretty);
+        }
+    }
+
+    /**
+     * 把JSON数组写入已打开的文件通道，写完后刷新缓冲但不关闭通道
+     */
+    public static <T> void writeArray(FileChannel channel, Iterable<T> items, Class<T> type, Gson gson,
+                                      boolean pretty) throws IOException {
+        writeArray(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), BUFFER_SIZE),
+                items, type, gson, pretty);
+    }
+
+    /**
+     * 把JSON数组写入字符流，写完后刷新缓冲但不关闭流
+     */
+    public static <T> void writeArray(Writer out, Iterable<T> items, Class<T> type, Gson gson,
+                                      boolean pretty) throws IOException {
+        JsonWriter json = new JsonWriter(new BufferedWriter(out, BUFFER_SIZE));
+        if (pretty) {
+            json.setIndent("  ");
+        }
+
+        json.beginArray();
+        for (T item : items) {
+            gson.toJson(item, type, json);
+        }
+        json.endArray();
+        json.flush();
+    }
+}